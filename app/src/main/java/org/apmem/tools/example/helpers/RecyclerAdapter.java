@@ -6,7 +6,7 @@ import android.view.ViewGroup;
 
 import org.apmem.tools.example.R;
 import org.apmem.tools.layouts.AstroFlowLayout;
-import org.apmem.tools.listeners.ChipListener;
+import org.apmem.tools.listeners.ChipChangesListener;
 import org.apmem.tools.model.ChipInterface;
 
 import java.util.List;
@@ -21,7 +21,7 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerAdapter.FlowVi
     private static final int INPUT_COUNT = 3;
 
     // Chips listener
-    private ChipListener mChipListener;
+    private ChipChangesListener mChipChangesListener;
 
     // We need just 3 rows.
     private AstroFlowLayout mToView;
@@ -55,7 +55,7 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerAdapter.FlowVi
 
     @Override
     public void onBindViewHolder(FlowViewHolder holder, int position) {
-        holder.mAstroFlowLayout.setChipListener(mChipListener);
+        holder.mAstroFlowLayout.setChipChangesListener(mChipChangesListener);
     }
 
     @Override
@@ -79,8 +79,8 @@ public class RecyclerAdapter extends RecyclerView.Adapter<RecyclerAdapter.FlowVi
         }
     }
 
-    public void setChipListener(ChipListener chipListener) {
-        mChipListener = chipListener;
+    public void setChipChangesListener(ChipChangesListener chipChangesListener) {
+        mChipChangesListener = chipChangesListener;
     }
 
     public void setToView(AstroFlowLayout toView) {
@@ -11,7 +11,8 @@ import org.apmem.tools.adapters.AutoCompleteAdapter;
 import org.apmem.tools.example.R;
 import org.apmem.tools.example.helpers.RecyclerAdapter;
 import org.apmem.tools.layouts.AstroFlowLayout;
-import org.apmem.tools.listeners.ChipListener;
+import org.apmem.tools.layouts.logic.ChipChanges;
+import org.apmem.tools.listeners.ChipChangesListener;
 import org.apmem.tools.model.Chip;
 import org.apmem.tools.model.ChipInterface;
 
@@ -73,19 +74,21 @@ public class RecyclerActivity extends Activity {
         adapter.setBccView(astroBccFlowLayout);
 
         // Set the chip listener, this will be shared between to all the to/cc/bcc views
-        adapter.setChipListener(new ChipListener() {
+        // Changes come in batches, so pasting many chips prints the data only once
+        adapter.setChipChangesListener(new ChipChangesListener() {
             @Override
-            public void onChipRemoved(ChipInterface chip) {
-                Log.d(LOG_TAG, "Removed chip " + chip.getLabel());
+            public void onChipsChanged(ChipChanges<ChipInterface> changes) {
+                for (ChipChanges.Change<ChipInterface> change : changes.getRemoved()) {
+                    Log.d(LOG_TAG, "Removed chip " + change.getChip().getLabel());
+                }
+                for (ChipChanges.Change<ChipInterface> change : changes.getAdded()) {
+                    Log.d(LOG_TAG, "Added chip " + change.getChip().getLabel());
+                }
+                for (ChipChanges.Change<ChipInterface> change : changes.getMoved()) {
+                    Log.d(LOG_TAG, "Moved chip " + change.getChip().getLabel());
+                }
                 printAllData(adapter);
             }
-
-            @Override
-            public void onChipAdded(ChipInterface chip) {
-                Log.d(LOG_TAG, "Added chip " + chip.getLabel());
-                printAllData(adapter);
-
-            }
         });
 
         // Finally set RecyclerView Adapter
@@ -93,7 +96,7 @@ public class RecyclerActivity extends Activity {
     }
 
     /**
-     * helper method to print the data of the ChipViews, called by ChipListener
+     * helper method to print the data of the ChipViews, called by ChipChangesListener
      * @param adapter
      */
     private void printAllData(RecyclerAdapter adapter) {
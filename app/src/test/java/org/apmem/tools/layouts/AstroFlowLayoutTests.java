@@ -0,0 +1,285 @@
+package org.apmem.tools.layouts;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.TextView;
+import junit.framework.Assert;
+
+import org.apmem.tools.layouts.logic.ChipChanges;
+import org.apmem.tools.listeners.BulkChipListener;
+import org.apmem.tools.listeners.ChipChangesListener;
+import org.apmem.tools.listeners.ChipListener;
+import org.apmem.tools.model.Chip;
+import org.apmem.tools.model.ChipInterface;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml", sdk = 21)
+public class AstroFlowLayoutTests {
+    TestActivity activity = Robolectric.setupActivity(TestActivity.class);
+
+    @Test
+    public void CountViewOnSecondLine_ExpandKeepsChipsInOrder() {
+        final TestAstroFlowLayout layout = createLayout();
+        // the first chip fills the first line, so the count view goes to the second one
+        final View[] chips = addChips(layout, 300, 100, 100, 100);
+        layoutPass(layout);
+        final int[][] expandedBounds = childBounds(layout);
+
+        layout.collapse();
+        layoutPass(layout);
+
+        Assert.assertEquals(6, layout.getChildCount());
+        final View countView = layout.getChildAt(5);
+        Assert.assertEquals("+3", ((TextView) countView).getText().toString());
+        Assert.assertEquals(View.VISIBLE, countView.getVisibility());
+        Assert.assertTrue(countView.getTop() >= chips[0].getBottom());
+        for (int i = 1; i < 5; i++) {
+            Assert.assertEquals(View.GONE, layout.getChildAt(i).getVisibility());
+        }
+
+        layout.forceExpand();
+        layoutPass(layout);
+
+        Assert.assertEquals(5, layout.getChildCount());
+        for (int i = 0; i < chips.length; i++) {
+            Assert.assertSame(chips[i], layout.getChildAt(i));
+            Assert.assertEquals(View.VISIBLE, chips[i].getVisibility());
+            Assert.assertSame(layout.getObjects().get(i), layout.getChipAt(i));
+        }
+        Assert.assertEquals(4, layout.getAutoCompleteTextViewIndex());
+        final int[][] bounds = childBounds(layout);
+        for (int i = 0; i < bounds.length; i++) {
+            Assert.assertTrue(Arrays.equals(expandedBounds[i], bounds[i]));
+        }
+    }
+
+    @Test
+    public void CollapsedBeforeMeasure_HiddenByFirstMeasureWithoutAnotherLayout() {
+        final TestAstroFlowLayout layout = createLayout();
+        final View[] chips = addChips(layout, 300, 100, 100, 100);
+
+        layout.collapse();
+        layout.requestLayoutCount = 0;
+        layoutPass(layout);
+
+        Assert.assertEquals(0, layout.requestLayoutCount);
+        Assert.assertEquals(6, layout.getChildCount());
+        Assert.assertEquals(View.VISIBLE, chips[0].getVisibility());
+        for (int i = 1; i < 5; i++) {
+            Assert.assertEquals(View.GONE, layout.getChildAt(i).getVisibility());
+        }
+        final View countView = layout.getChildAt(5);
+        Assert.assertEquals("+3", ((TextView) countView).getText().toString());
+        Assert.assertTrue(countView.getBottom() > countView.getTop());
+    }
+
+    @Test
+    public void AddChips_AddedInOrderBeforeAutoCompleteView() {
+        final TestAstroFlowLayout layout = createLayout();
+        final View[] chips = addChips(layout, 100);
+        final List<ChipInterface> added = createChips(3);
+
+        layout.addChips(added);
+
+        Assert.assertEquals(5, layout.getChildCount());
+        Assert.assertSame(chips[0], layout.getChildAt(0));
+        Assert.assertEquals(4, layout.getAutoCompleteTextViewIndex());
+        for (int i = 0; i < added.size(); i++) {
+            Assert.assertSame(added.get(i), layout.getChipAt(i + 1));
+            Assert.assertSame(added.get(i), layout.getObjects().get(i + 1));
+        }
+    }
+
+    @Test
+    public void AddChips_ListenersNotifiedOfAllChipsInOrder() {
+        final TestAstroFlowLayout layout = createLayout();
+        addChips(layout, 100);
+        layout.requestLayoutCount = 0;
+        final List<ChipInterface> notified = new ArrayList<>();
+        layout.setChipListener(new ChipListener() {
+            @Override
+            public void onChipRemoved(ChipInterface chip) {
+            }
+
+            @Override
+            public void onChipAdded(ChipInterface chip) {
+                // told once the layout is requested
+                Assert.assertEquals(1, layout.requestLayoutCount);
+                notified.add(chip);
+            }
+        });
+        final List<ChipChanges<ChipInterface>> changes = new ArrayList<>();
+        layout.setChipChangesListener(new ChipChangesListener() {
+            @Override
+            public void onChipsChanged(ChipChanges<ChipInterface> chipChanges) {
+                changes.add(chipChanges);
+            }
+        });
+        final List<ChipInterface> added = createChips(3);
+
+        layout.addChips(added);
+
+        Assert.assertEquals(added, notified);
+        Assert.assertEquals(1, changes.size());
+        Assert.assertEquals(3, changes.get(0).getAdded().size());
+        for (int i = 0; i < added.size(); i++) {
+            Assert.assertSame(added.get(i), changes.get(0).getAdded().get(i).getChip());
+            Assert.assertEquals(i + 1, changes.get(0).getAdded().get(i).getToPosition());
+        }
+        Assert.assertTrue(changes.get(0).getRemoved().isEmpty());
+    }
+
+    @Test
+    public void AddChips_BulkChipListenerNotifiedOnce() {
+        final TestAstroFlowLayout layout = createLayout();
+        addChips(layout, 100);
+        final List<List<ChipInterface>> notified = new ArrayList<>();
+        layout.setChipListener(new BulkChipListener() {
+            @Override
+            public void onChipsAdded(List<ChipInterface> chips) {
+                notified.add(new ArrayList<>(chips));
+            }
+
+            @Override
+            public void onChipRemoved(ChipInterface chip) {
+            }
+
+            @Override
+            public void onChipAdded(ChipInterface chip) {
+                Assert.fail("chips added in bulk are reported at once");
+            }
+        });
+        final List<ChipInterface> added = createChips(3);
+
+        layout.addChips(added);
+
+        Assert.assertEquals(1, notified.size());
+        Assert.assertEquals(added, notified.get(0));
+    }
+
+    @Test
+    public void AddChips_OneLayoutRequested() {
+        final TestAstroFlowLayout layout = createLayout();
+        addChips(layout, 100);
+        layoutPass(layout);
+
+        layout.requestLayoutCount = 0;
+        layout.addChips(createChips(3));
+
+        Assert.assertEquals(1, layout.requestLayoutCount);
+    }
+
+    @Test
+    public void AddChipAt_ViewBeforeChips_ChipsKeptInChildOrder() {
+        final TestAstroFlowLayout layout = createLayout();
+        layout.addView(new View(activity), 0);
+        final View[] chips = addChips(layout, 100, 100);
+        final View chip = layout.getObjectView("first@example.com", false);
+
+        layout.addChipAt(chip, 1);
+
+        Assert.assertEquals(3, layout.getObjects().size());
+        Assert.assertSame(layout.getChip(chip), layout.getObjects().get(0));
+        Assert.assertSame(layout.getChip(chips[0]), layout.getObjects().get(1));
+        Assert.assertSame(layout.getChip(chips[1]), layout.getObjects().get(2));
+    }
+
+    @Test
+    public void AddChipAtPositionWithChip_ViewBeforeChips_ChipsKeptInChildOrder() {
+        final TestAstroFlowLayout layout = createLayout();
+        layout.addView(new View(activity), 0);
+        final View[] chips = addChips(layout, 100, 100);
+        final View chip = layout.getObjectView("moved@example.com", false);
+        final ChipInterface movedChip = layout.getChip(chip);
+        layout.removeChildView(chip);
+
+        layout.addChipAtPositionWithChip(chip, movedChip, 2);
+
+        Assert.assertEquals(3, layout.getObjects().size());
+        Assert.assertSame(layout.getChip(chips[0]), layout.getObjects().get(0));
+        Assert.assertSame(movedChip, layout.getObjects().get(1));
+        Assert.assertSame(layout.getChip(chips[1]), layout.getObjects().get(2));
+    }
+
+    @Test
+    public void GetChipMap_ChipsInOrder() {
+        final TestAstroFlowLayout layout = createLayout();
+        final View[] chips = addChips(layout, 100, 100, 100);
+
+        final List<View> views = new ArrayList<>(layout.getChipMap().keySet());
+
+        Assert.assertEquals(Arrays.asList(chips), views);
+        Assert.assertSame(layout.getObjects().get(1), layout.getChipMap().get(chips[1]));
+    }
+
+    private static List<ChipInterface> createChips(int count) {
+        final List<ChipInterface> chips = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final String address = "added" + i + "@example.com";
+            chips.add(new Chip(address, address, address, false));
+        }
+        return chips;
+    }
+
+    private TestAstroFlowLayout createLayout() {
+        final TestAstroFlowLayout layout = new TestAstroFlowLayout(activity);
+        layout.mCollapsible = true;
+        return layout;
+    }
+
+    /**
+     * Adds chips of the given widths before the auto complete view.
+     */
+    private static View[] addChips(AstroFlowLayout layout, int... widths) {
+        final View[] chips = new View[widths.length];
+        for (int i = 0; i < widths.length; i++) {
+            chips[i] = layout.getObjectView("user" + i + "@example.com", false);
+            chips[i].getLayoutParams().width = widths[i];
+            layout.addChipAt(chips[i], layout.getAutoCompleteTextViewIndex());
+        }
+        return chips;
+    }
+
+    private static void layoutPass(FlowLayout layout) {
+        layout.measure(
+                View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED)
+        );
+        layout.layout(0, 0, layout.getMeasuredWidth(), layout.getMeasuredHeight());
+    }
+
+    private static int[][] childBounds(FlowLayout layout) {
+        final int[][] bounds = new int[layout.getChildCount()][];
+        for (int i = 0; i < bounds.length; i++) {
+            final View child = layout.getChildAt(i);
+            bounds[i] = new int[]{child.getLeft(), child.getTop(), child.getRight(), child.getBottom()};
+        }
+        return bounds;
+    }
+
+    /**
+     * Counts the layouts it requests.
+     */
+    private static class TestAstroFlowLayout extends AstroFlowLayout {
+        int requestLayoutCount;
+
+        TestAstroFlowLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestLayout() {
+            requestLayoutCount++;
+            super.requestLayout();
+        }
+    }
+}
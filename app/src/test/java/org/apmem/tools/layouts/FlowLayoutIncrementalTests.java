@@ -0,0 +1,136 @@
+package org.apmem.tools.layouts;
+
+import android.view.View;
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml", sdk = 21)
+public class FlowLayoutIncrementalTests {
+    TestActivity activity = Robolectric.setupActivity(TestActivity.class);
+
+    @Test
+    public void ChildAppended_SameAsFullLayout() {
+        final FlowLayout layout = createLayout(100, 100, 100, 100, 100);
+
+        layout.addView(createChild(100));
+
+        assertSameAsFullLayout(layout);
+        Assert.assertEquals(100, layout.getMeasuredHeight());
+        Assert.assertEquals(200, layout.getChildAt(5).getLeft());
+        Assert.assertEquals(50, layout.getChildAt(5).getTop());
+    }
+
+    @Test
+    public void FirstChildOfLineRemoved_NextChildMovesToPreviousLine() {
+        // lines: [150 100] [100 50]
+        final FlowLayout layout = createLayout(150, 100, 100, 50);
+
+        layout.removeViewAt(2);
+
+        assertSameAsFullLayout(layout);
+        Assert.assertEquals(50, layout.getMeasuredHeight());
+        Assert.assertEquals(250, layout.getChildAt(2).getLeft());
+        Assert.assertEquals(0, layout.getChildAt(2).getTop());
+    }
+
+    @Test
+    public void LastChildAloneOnLineRemoved_LineRemoved() {
+        final FlowLayout layout = createLayout(100, 100, 100, 100);
+
+        layout.removeViewAt(3);
+
+        assertSameAsFullLayout(layout);
+        Assert.assertEquals(50, layout.getMeasuredHeight());
+    }
+
+    @Test
+    public void FirstChildOfLineShrunk_MovesToPreviousLine() {
+        // lines: [150 100] [100 100]
+        final FlowLayout layout = createLayout(150, 100, 100, 100);
+
+        layout.getChildAt(2).setLayoutParams(new FlowLayout.LayoutParams(50, 50));
+
+        assertSameAsFullLayout(layout);
+        Assert.assertEquals(250, layout.getChildAt(2).getLeft());
+        Assert.assertEquals(0, layout.getChildAt(2).getTop());
+        Assert.assertEquals(0, layout.getChildAt(3).getLeft());
+        Assert.assertEquals(50, layout.getChildAt(3).getTop());
+    }
+
+    @Test
+    public void HiddenChildRemovedBeforeChangedLine_SameAsFullLayout() {
+        final FlowLayout layout = createLayout(100, 100, 100, 100, 100);
+        final View hidden = createChild(100);
+        hidden.setVisibility(View.GONE);
+        layout.addView(hidden, 1);
+        layoutPass(layout);
+
+        // only the second line is re-flowed, from the child after the first line's last one
+        layout.removeView(hidden);
+        layout.getChildAt(4).setLayoutParams(new FlowLayout.LayoutParams(50, 50));
+
+        assertSameAsFullLayout(layout);
+        Assert.assertEquals(0, layout.getChildAt(3).getLeft());
+        Assert.assertEquals(50, layout.getChildAt(3).getTop());
+        Assert.assertEquals(150, layout.getChildAt(4).getRight());
+    }
+
+    private FlowLayout createLayout(int... childWidths) {
+        final FlowLayout layout = new TestFlowLayout(activity);
+        layout.setIncrementalLayout(true);
+        for (int width : childWidths) {
+            layout.addView(createChild(width));
+        }
+        layoutPass(layout);
+        return layout;
+    }
+
+    private View createChild(int width) {
+        final View child = new View(activity);
+        child.setLayoutParams(new FlowLayout.LayoutParams(width, 50));
+        return child;
+    }
+
+    /**
+     * Lays out the changed layout incrementally, then from scratch, and compares the children.
+     */
+    private static void assertSameAsFullLayout(FlowLayout layout) {
+        layoutPass(layout);
+        final int[][] incremental = childBounds(layout);
+        final int incrementalHeight = layout.getMeasuredHeight();
+
+        layout.setIncrementalLayout(false);
+        layout.requestLayout();
+        layoutPass(layout);
+
+        Assert.assertEquals(layout.getMeasuredHeight(), incrementalHeight);
+        Assert.assertTrue(Arrays.deepEquals(childBounds(layout), incremental));
+        layout.setIncrementalLayout(true);
+        layoutPass(layout);
+    }
+
+    private static void layoutPass(FlowLayout layout) {
+        layout.measure(
+                View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED)
+        );
+        layout.layout(0, 0, layout.getMeasuredWidth(), layout.getMeasuredHeight());
+    }
+
+    private static int[][] childBounds(FlowLayout layout) {
+        final int[][] bounds = new int[layout.getChildCount()][];
+        for (int i = 0; i < bounds.length; i++) {
+            final View child = layout.getChildAt(i);
+            bounds[i] = new int[]{child.getLeft(), child.getTop(), child.getRight(), child.getBottom()};
+        }
+        return bounds;
+    }
+}
@@ -0,0 +1,432 @@
+package org.apmem.tools.layouts;
+
+import android.os.Parcelable;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import junit.framework.Assert;
+
+import org.apmem.tools.layouts.logic.CommonLogic;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml", sdk = 21)
+public class FlowLayoutManagerTests {
+    TestActivity activity = Robolectric.setupActivity(TestActivity.class);
+
+    @Test
+    public void ManyItems_OnlyVisibleLinesLaidOut() {
+        final FlowLayoutManager layoutManager = new FlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+
+        // 3 items of 100x50 per line, 4 lines in 200px
+        Assert.assertEquals(12, recyclerView.getChildCount());
+        for (int i = 0; i < 12; i++) {
+            final View child = recyclerView.getChildAt(i);
+            Assert.assertEquals(i, layoutManager.getPosition(child));
+            Assert.assertEquals((i % 3) * 100, child.getLeft());
+            Assert.assertEquals((i / 3) * 50, child.getTop());
+        }
+    }
+
+    @Test
+    public void ExtraLayoutSpace_AdditionalLinesLaidOut() {
+        final FlowLayoutManager layoutManager = new FlowLayoutManager();
+        layoutManager.setExtraLayoutSpace(100);
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+
+        Assert.assertEquals(18, recyclerView.getChildCount());
+    }
+
+    @Test
+    public void FewItems_AllLaidOut() {
+        final RecyclerView recyclerView = createRecyclerView(new FlowLayoutManager(), 5, 300, 200);
+
+        Assert.assertEquals(5, recyclerView.getChildCount());
+    }
+
+    @Test
+    public void ScrollDown_LinesLeavingTopRecycled() {
+        final FlowLayoutManager layoutManager = new FlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+
+        recyclerView.scrollBy(0, 120);
+
+        // lines 0 and 1 end above the visible area, lines 2 to 6 intersect it
+        Assert.assertEquals(15, recyclerView.getChildCount());
+        Assert.assertEquals(6, layoutManager.getPosition(recyclerView.getChildAt(0)));
+        Assert.assertEquals(-20, recyclerView.getChildAt(0).getTop());
+        Assert.assertEquals(20, layoutManager.getPosition(recyclerView.getChildAt(14)));
+    }
+
+    @Test
+    public void ScrollUp_StopsAtFirstLine() {
+        final FlowLayoutManager layoutManager = new FlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+
+        recyclerView.scrollBy(0, 500);
+        recyclerView.scrollBy(0, -800);
+
+        Assert.assertEquals(0, layoutManager.getPosition(recyclerView.getChildAt(0)));
+        Assert.assertEquals(0, recyclerView.getChildAt(0).getTop());
+        Assert.assertEquals(12, recyclerView.getChildCount());
+    }
+
+    @Test
+    public void ScrollDown_StopsAtLastLine() {
+        final FlowLayoutManager layoutManager = new FlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 30, 300, 200);
+
+        recyclerView.scrollBy(0, 1000);
+
+        // 10 lines of 50px, the last one ends at the bottom
+        final View last = recyclerView.getChildAt(recyclerView.getChildCount() - 1);
+        Assert.assertEquals(29, layoutManager.getPosition(last));
+        Assert.assertEquals(200, last.getBottom());
+    }
+
+    @Test
+    public void VerticalOrientation_ScrollRight_ColumnsLeavingLeftRecycled() {
+        final FlowLayoutManager layoutManager = new FlowLayoutManager();
+        layoutManager.setOrientation(CommonLogic.VERTICAL);
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+
+        // 4 items of 100x50 per column, 3 columns in 300px
+        Assert.assertFalse(layoutManager.canScrollVertically());
+        Assert.assertTrue(layoutManager.canScrollHorizontally());
+        Assert.assertEquals(12, recyclerView.getChildCount());
+
+        recyclerView.scrollBy(120, 0);
+
+        // column 0 ends left of the visible area, columns 1 to 4 intersect it
+        Assert.assertEquals(16, recyclerView.getChildCount());
+        Assert.assertEquals(4, layoutManager.getPosition(recyclerView.getChildAt(0)));
+        Assert.assertEquals(-20, recyclerView.getChildAt(0).getLeft());
+        Assert.assertEquals(150, recyclerView.getChildAt(3).getTop());
+        Assert.assertEquals(120, recyclerView.computeHorizontalScrollOffset());
+    }
+
+    @Test
+    public void ScrollMetrics_EstimatedFromFilledLines() {
+        final FlowLayoutManager layoutManager = new FlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+
+        recyclerView.scrollBy(0, 120);
+
+        // 334 lines of 50px, estimated from the lines filled so far
+        Assert.assertEquals(16700, recyclerView.computeVerticalScrollRange());
+        Assert.assertEquals(120, recyclerView.computeVerticalScrollOffset());
+        Assert.assertEquals(200, recyclerView.computeVerticalScrollExtent());
+    }
+
+    @Test
+    public void ScrollToPosition_LineOfItemAtTop() {
+        final FlowLayoutManager layoutManager = new FlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+
+        layoutManager.scrollToPosition(301);
+        layoutPass(recyclerView, 300, 200);
+
+        // item 301 is in line 100, which starts with item 300
+        Assert.assertEquals(300, layoutManager.getPosition(recyclerView.getChildAt(0)));
+        Assert.assertEquals(0, recyclerView.getChildAt(0).getTop());
+        Assert.assertEquals(12, recyclerView.getChildCount());
+    }
+
+    @Test
+    public void UniformItemSize_ScrollToPosition_LineOfItemAtTop() {
+        final FlowLayoutManager layoutManager = new FlowLayoutManager();
+        layoutManager.setUniformItemSize(true);
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+
+        layoutManager.scrollToPosition(301);
+        layoutPass(recyclerView, 300, 200);
+
+        Assert.assertEquals(300, layoutManager.getPosition(recyclerView.getChildAt(0)));
+        Assert.assertEquals(0, recyclerView.getChildAt(0).getTop());
+        Assert.assertEquals(12, recyclerView.getChildCount());
+        Assert.assertEquals(50, recyclerView.getChildAt(11).getTop());
+        Assert.assertEquals(200, recyclerView.getChildAt(11).getLeft());
+    }
+
+    @Test
+    public void SaveInstanceState_RestoresFirstLineAndOffset() {
+        final FlowLayoutManager layoutManager = new FlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+        recyclerView.scrollBy(0, 5020);
+        final Parcelable state = layoutManager.onSaveInstanceState();
+
+        final FlowLayoutManager restoredManager = new FlowLayoutManager();
+        restoredManager.onRestoreInstanceState(state);
+        final RecyclerView restoredView = createRecyclerView(restoredManager, 1000, 300, 200);
+
+        // line 100 starts at 5000
+        Assert.assertEquals(300, restoredManager.getPosition(restoredView.getChildAt(0)));
+        Assert.assertEquals(-20, restoredView.getChildAt(0).getTop());
+        Assert.assertEquals(5020, restoredView.computeVerticalScrollOffset());
+    }
+
+    @Test
+    public void ScrollToPosition_NearEnd_LastLineAtBottom() {
+        final FlowLayoutManager layoutManager = new FlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+
+        layoutManager.scrollToPosition(999);
+        layoutPass(recyclerView, 300, 200);
+
+        final View last = recyclerView.getChildAt(recyclerView.getChildCount() - 1);
+        Assert.assertEquals(999, layoutManager.getPosition(last));
+        Assert.assertEquals(200, last.getBottom());
+    }
+
+    @Test
+    public void ItemsInsertedAbove_FirstVisibleItemStaysInPlace() {
+        final FlowLayoutManager layoutManager = new FlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+        recyclerView.scrollBy(0, 120);
+
+        final FixedSizeAdapter adapter = (FixedSizeAdapter) recyclerView.getAdapter();
+        adapter.itemCount += 3;
+        adapter.notifyItemRangeInserted(0, 3);
+        layoutPass(recyclerView, 300, 200);
+
+        Assert.assertEquals(9, layoutManager.getPosition(recyclerView.getChildAt(0)));
+        Assert.assertEquals(-20, recyclerView.getChildAt(0).getTop());
+    }
+
+    @Test
+    public void ItemRemoved_ItemMovingInLaidOutAfterLastLineInPreLayout() {
+        final RecordingFlowLayoutManager layoutManager = new RecordingFlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+        final View[] firstLine = {recyclerView.getChildAt(0), recyclerView.getChildAt(1), recyclerView.getChildAt(2)};
+        final FixedSizeAdapter adapter = (FixedSizeAdapter) recyclerView.getAdapter();
+        adapter.bindCount = 0;
+
+        adapter.itemCount--;
+        adapter.notifyItemRemoved(4);
+        layoutPass(recyclerView, 300, 200);
+
+        // item 12 replaces the removed one on the last line, it comes in from the line after it
+        Assert.assertEquals(13, layoutManager.preLayout.size());
+        Assert.assertEquals(12, layoutManager.preLayout.get(12).position);
+        Assert.assertEquals(0, layoutManager.preLayout.get(12).left);
+        Assert.assertEquals(200, layoutManager.preLayout.get(12).top);
+
+        Assert.assertEquals(12, layoutManager.postLayout.size());
+        Assert.assertEquals(100, layoutManager.findViewByPosition(4).getLeft());
+        Assert.assertEquals(50, layoutManager.findViewByPosition(4).getTop());
+        Assert.assertSame(layoutManager.preLayout.get(12).view, layoutManager.findViewByPosition(11));
+        Assert.assertEquals(200, layoutManager.findViewByPosition(11).getLeft());
+        Assert.assertEquals(150, layoutManager.findViewByPosition(11).getTop());
+
+        // the first line keeps its views in place, only the item moving in is bound
+        for (int i = 0; i < firstLine.length; i++) {
+            Assert.assertSame(firstLine[i], layoutManager.findViewByPosition(i));
+            Assert.assertEquals(i * 100, firstLine[i].getLeft());
+            Assert.assertEquals(0, firstLine[i].getTop());
+        }
+        Assert.assertEquals(1, adapter.bindCount);
+    }
+
+    @Test
+    public void ItemsInserted_ViewsPushedOutDisappearAtTheirNewLine() {
+        final RecordingFlowLayoutManager layoutManager = new RecordingFlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+        final View[] firstLine = {recyclerView.getChildAt(0), recyclerView.getChildAt(1), recyclerView.getChildAt(2)};
+        final View[] lastLine = {recyclerView.getChildAt(9), recyclerView.getChildAt(10), recyclerView.getChildAt(11)};
+        final FixedSizeAdapter adapter = (FixedSizeAdapter) recyclerView.getAdapter();
+        adapter.bindCount = 0;
+
+        adapter.itemCount += 3;
+        adapter.notifyItemRangeInserted(4, 3);
+        layoutPass(recyclerView, 300, 200);
+
+        // nothing moves in, the attached views stay as they are
+        Assert.assertEquals(12, layoutManager.preLayout.size());
+
+        // items 12 to 14 no longer fit, they move to the line after the last one and disappear
+        Assert.assertEquals(15, layoutManager.postLayout.size());
+        for (int i = 0; i < lastLine.length; i++) {
+            final LaidOutChild child = layoutManager.postLayout.get(12 + i);
+            Assert.assertSame(lastLine[i], child.view);
+            Assert.assertEquals(12 + i, child.position);
+            Assert.assertEquals(i * 100, child.left);
+            Assert.assertEquals(200, child.top);
+        }
+
+        // the first line keeps its views in place, only the inserted items are bound
+        for (int i = 0; i < firstLine.length; i++) {
+            Assert.assertSame(firstLine[i], layoutManager.postLayout.get(i).view);
+            Assert.assertEquals(i * 100, layoutManager.postLayout.get(i).left);
+            Assert.assertEquals(0, layoutManager.postLayout.get(i).top);
+        }
+        Assert.assertEquals(3, adapter.bindCount);
+    }
+
+    @Test
+    public void ScrollDown_NextLinePrefetchedWithDistanceToIt() {
+        final RecordingFlowLayoutManager layoutManager = new RecordingFlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+        recyclerView.scrollBy(0, 500);
+        recyclerView.scrollBy(0, -290);
+        final RecordingPrefetchRegistry registry = new RecordingPrefetchRegistry();
+
+        layoutManager.collectAdjacentPrefetchPositions(0, 10, layoutManager.state, registry);
+
+        // lines 4 to 8 are attached, line 9 is indexed and starts 40px below the visible area
+        Assert.assertEquals(Arrays.asList(27, 28, 29), registry.positions);
+        Assert.assertEquals(Arrays.asList(40, 40, 40), registry.distances);
+    }
+
+    @Test
+    public void ScrollUp_PreviousLinePrefetchedWithDistanceToIt() {
+        final RecordingFlowLayoutManager layoutManager = new RecordingFlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+        final RecordingPrefetchRegistry registry = new RecordingPrefetchRegistry();
+
+        layoutManager.collectAdjacentPrefetchPositions(0, -10, layoutManager.state, registry);
+        Assert.assertTrue(registry.positions.isEmpty());
+
+        recyclerView.scrollBy(0, 120);
+        layoutManager.collectAdjacentPrefetchPositions(0, -10, layoutManager.state, registry);
+
+        // line 1 ends 20px above the visible area
+        Assert.assertEquals(Arrays.asList(3, 4, 5), registry.positions);
+        Assert.assertEquals(Arrays.asList(20, 20, 20), registry.distances);
+    }
+
+    @Test
+    public void NextLineNotIndexed_ItemsOfLastIndexedLinePrefetched() {
+        final RecordingFlowLayoutManager layoutManager = new RecordingFlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+        recyclerView.scrollBy(0, 120);
+        final RecordingPrefetchRegistry registry = new RecordingPrefetchRegistry();
+
+        layoutManager.collectAdjacentPrefetchPositions(0, 10, layoutManager.state, registry);
+
+        // line 7 is not indexed yet, it is expected to hold as many items as line 6
+        Assert.assertEquals(Arrays.asList(21, 22, 23), registry.positions);
+        Assert.assertEquals(Arrays.asList(30, 30, 30), registry.distances);
+    }
+
+    @Test
+    public void InitialPrefetch_FirstItemsOfFirstLineOrPendingPosition() {
+        final RecordingFlowLayoutManager layoutManager = new RecordingFlowLayoutManager();
+        final RecyclerView recyclerView = createRecyclerView(layoutManager, 1000, 300, 200);
+        recyclerView.scrollBy(0, 120);
+        final RecordingPrefetchRegistry registry = new RecordingPrefetchRegistry();
+
+        layoutManager.collectInitialPrefetchPositions(1000, registry);
+        Assert.assertEquals(Arrays.asList(6, 7), registry.positions);
+
+        registry.positions.clear();
+        layoutManager.scrollToPosition(500);
+        layoutManager.collectInitialPrefetchPositions(1000, registry);
+        Assert.assertEquals(Arrays.asList(500, 501), registry.positions);
+    }
+
+    private static void layoutPass(RecyclerView recyclerView, int width, int height) {
+        recyclerView.measure(
+                View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY)
+        );
+        recyclerView.layout(0, 0, width, height);
+    }
+
+    private RecyclerView createRecyclerView(FlowLayoutManager layoutManager, int itemCount, int width, int height) {
+        final RecyclerView recyclerView = new RecyclerView(activity);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setAdapter(new FixedSizeAdapter(itemCount, 100, 50));
+        recyclerView.measure(
+                View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY)
+        );
+        recyclerView.layout(0, 0, width, height);
+        return recyclerView;
+    }
+
+    /**
+     * Keeps the children laid out by the last pre-layout and post-layout pass, including the
+     * disappearing ones.
+     */
+    static class RecordingFlowLayoutManager extends FlowLayoutManager {
+        final List<LaidOutChild> preLayout = new ArrayList<>();
+        final List<LaidOutChild> postLayout = new ArrayList<>();
+        RecyclerView.State state;
+
+        @Override
+        public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+            super.onLayoutChildren(recycler, state);
+            this.state = state;
+            final List<LaidOutChild> children = state.isPreLayout() ? preLayout : postLayout;
+            children.clear();
+            for (int i = 0; i < getChildCount(); i++) {
+                children.add(new LaidOutChild(getChildAt(i), getPosition(getChildAt(i))));
+            }
+        }
+    }
+
+    static class RecordingPrefetchRegistry implements RecyclerView.LayoutManager.LayoutPrefetchRegistry {
+        final List<Integer> positions = new ArrayList<>();
+        final List<Integer> distances = new ArrayList<>();
+
+        @Override
+        public void addPosition(int layoutPosition, int pixelDistance) {
+            positions.add(layoutPosition);
+            distances.add(pixelDistance);
+        }
+    }
+
+    static class LaidOutChild {
+        final View view;
+        final int position;
+        final int left;
+        final int top;
+
+        LaidOutChild(View view, int position) {
+            this.view = view;
+            this.position = position;
+            this.left = view.getLeft();
+            this.top = view.getTop();
+        }
+    }
+
+    static class FixedSizeAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        int itemCount;
+        int bindCount;
+        private final int width;
+        private final int height;
+
+        FixedSizeAdapter(int itemCount, int width, int height) {
+            this.itemCount = itemCount;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            final View view = new View(parent.getContext());
+            view.setLayoutParams(new FlowLayoutManager.LayoutParams(width, height));
+            return new RecyclerView.ViewHolder(view) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            bindCount++;
+        }
+
+        @Override
+        public int getItemCount() {
+            return itemCount;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.apmem.tools.layouts;
+
+import android.content.Context;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "src/main/AndroidManifest.xml", sdk = 21)
+public class FlowLayoutMeasureCacheTests {
+    TestActivity activity = Robolectric.setupActivity(TestActivity.class);
+
+    @Test
+    public void UnchangedPass_ChildNotMeasured() {
+        final FlowLayout layout = new TestFlowLayout(activity);
+        final CountingView child = addChild(layout, ViewGroup.LayoutParams.WRAP_CONTENT, 50);
+        layoutPass(layout, 300);
+        child.measureCount = 0;
+
+        layout.requestLayout();
+        layoutPass(layout, 300);
+
+        Assert.assertEquals(0, child.measureCount);
+    }
+
+    @Test
+    public void ChildRequestedLayout_MeasuredWithSpecAndExactSize() {
+        final FlowLayout layout = new TestFlowLayout(activity);
+        final CountingView child = addChild(layout, ViewGroup.LayoutParams.WRAP_CONTENT, 50);
+        layoutPass(layout, 300);
+        child.measureCount = 0;
+
+        child.requestLayout();
+        layoutPass(layout, 300);
+
+        Assert.assertEquals(2, child.measureCount);
+    }
+
+    @Test
+    public void NewSpec_MeasuredWithSpecAndExactSize() {
+        final FlowLayout layout = new TestFlowLayout(activity);
+        final CountingView child = addChild(layout, ViewGroup.LayoutParams.WRAP_CONTENT, 50);
+        layoutPass(layout, 300);
+        child.measureCount = 0;
+
+        layoutPass(layout, 250);
+
+        Assert.assertEquals(2, child.measureCount);
+        Assert.assertEquals(250, child.getMeasuredWidth());
+    }
+
+    @Test
+    public void NewExactSize_OnlyMeasuredWithExactSize() {
+        final FlowLayout layout = new TestFlowLayout(activity);
+        final CountingView child = addChild(layout, 100, 50);
+        ((FlowLayout.LayoutParams) child.getLayoutParams()).setGravity(Gravity.FILL_VERTICAL);
+        final CountingView sibling = addChild(layout, 100, 50);
+        layoutPass(layout, 300);
+        child.measureCount = 0;
+
+        // the child fills the line, which gets as high as the sibling
+        sibling.setLayoutParams(new FlowLayout.LayoutParams(100, 80));
+        layoutPass(layout, 300);
+
+        Assert.assertEquals(1, child.measureCount);
+        Assert.assertEquals(80, child.getMeasuredHeight());
+    }
+
+    private static CountingView addChild(FlowLayout layout, int width, int height) {
+        final CountingView child = new CountingView(layout.getContext());
+        child.setLayoutParams(new FlowLayout.LayoutParams(width, height));
+        layout.addView(child);
+        return child;
+    }
+
+    private static void layoutPass(FlowLayout layout, int width) {
+        layout.measure(
+                View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED)
+        );
+        layout.layout(0, 0, layout.getMeasuredWidth(), layout.getMeasuredHeight());
+    }
+
+    /**
+     * Counts how often it is measured.
+     */
+    private static class CountingView extends View {
+        int measureCount;
+
+        CountingView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            measureCount++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+    }
+}
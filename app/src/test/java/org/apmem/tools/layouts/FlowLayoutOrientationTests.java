@@ -155,4 +155,84 @@ public class FlowLayoutOrientationTests {
         Assert.assertEquals(10, btn2.getWidth());
         Assert.assertEquals(20, btn2.getHeight());
     }
+
+    @Test
+    public void HorizontalOrientationRtlReversesEachLine() {
+        final FlowLayout layout = new FlowLayout(activity.getApplicationContext());
+        layout.setGravity(Gravity.LEFT | Gravity.TOP);
+        layout.setOrientation(CommonLogic.HORIZONTAL);
+        layout.setLayoutDirection(View.LAYOUT_DIRECTION_RTL);
+
+        final Button btn1 = new Button(activity);
+        FlowLayout.LayoutParams lp1 = new FlowLayout.LayoutParams(30, 40);
+        lp1.setMargins(1, 2, 3, 4);
+        btn1.setLayoutParams(lp1);
+        layout.addView(btn1);
+
+        final Button btn2 = new Button(activity);
+        FlowLayout.LayoutParams lp2 = new FlowLayout.LayoutParams(10, 20);
+        lp2.setMargins(1, 2, 3, 4);
+        btn2.setLayoutParams(lp2);
+        layout.addView(btn2);
+
+        final Button btn3 = new Button(activity);
+        FlowLayout.LayoutParams lp3 = new FlowLayout.LayoutParams(20, 10);
+        lp3.setMargins(1, 2, 3, 4);
+        btn3.setLayoutParams(lp3);
+        layout.addView(btn3);
+
+        layout.measure(
+                View.MeasureSpec.makeMeasureSpec(70, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(80, View.MeasureSpec.EXACTLY)
+        );
+        layout.layout(0, 0, 0, 0);
+
+        // first line is [btn2, btn1], btn3 does not fit and starts the second line
+        Assert.assertEquals(15, btn1.getLeft());
+        Assert.assertEquals(2, btn1.getTop());
+        Assert.assertEquals(1, btn2.getLeft());
+        Assert.assertEquals(2, btn2.getTop());
+        Assert.assertEquals(1, btn3.getLeft());
+        Assert.assertEquals(57, btn3.getTop());
+    }
+
+    @Test
+    public void VerticalOrientationRtlReversesLines() {
+        final FlowLayout layout = new FlowLayout(activity.getApplicationContext());
+        layout.setGravity(Gravity.LEFT | Gravity.TOP);
+        layout.setOrientation(CommonLogic.VERTICAL);
+        layout.setLayoutDirection(View.LAYOUT_DIRECTION_RTL);
+
+        final Button btn1 = new Button(activity);
+        FlowLayout.LayoutParams lp1 = new FlowLayout.LayoutParams(30, 40);
+        lp1.setMargins(1, 2, 3, 4);
+        btn1.setLayoutParams(lp1);
+        layout.addView(btn1);
+
+        final Button btn2 = new Button(activity);
+        FlowLayout.LayoutParams lp2 = new FlowLayout.LayoutParams(10, 20);
+        lp2.setMargins(1, 2, 3, 4);
+        btn2.setLayoutParams(lp2);
+        layout.addView(btn2);
+
+        final Button btn3 = new Button(activity);
+        FlowLayout.LayoutParams lp3 = new FlowLayout.LayoutParams(20, 10);
+        lp3.setMargins(1, 2, 3, 4);
+        btn3.setLayoutParams(lp3);
+        layout.addView(btn3);
+
+        layout.measure(
+                View.MeasureSpec.makeMeasureSpec(70, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(80, View.MeasureSpec.EXACTLY)
+        );
+        layout.layout(0, 0, 0, 0);
+
+        // btn3 does not fit in the first column, the columns are placed right to left
+        Assert.assertEquals(31, btn1.getLeft());
+        Assert.assertEquals(2, btn1.getTop());
+        Assert.assertEquals(31, btn2.getLeft());
+        Assert.assertEquals(48, btn2.getTop());
+        Assert.assertEquals(1, btn3.getLeft());
+        Assert.assertEquals(2, btn3.getTop());
+    }
 }
@@ -0,0 +1,54 @@
+package org.apmem.tools.layouts;
+
+import android.content.Context;
+import android.view.View;
+
+import org.apmem.tools.model.ChipInterface;
+
+import java.util.List;
+
+/**
+ * Plain {@link FlowLayout} without chips, only laying out the children added to it.
+ */
+public class TestFlowLayout extends FlowLayout {
+
+    public TestFlowLayout(Context context) {
+        super(context);
+        removeView(getAutoCompleteTextView());
+    }
+
+    @Override
+    public void collapse() {
+    }
+
+    @Override
+    public void expand() {
+    }
+
+    @Override
+    public View getObjectView(Object item, boolean isAutoCompleted) {
+        return null;
+    }
+
+    @Override
+    public void removeChipAt(int position) {
+    }
+
+    @Override
+    public void addChipAt(View view, int position) {
+    }
+
+    @Override
+    public void addChips(List<ChipInterface> chips) {
+    }
+
+    @Override
+    public List<ChipInterface> getObjects() {
+        return null;
+    }
+
+    @Override
+    public ChipInterface getChipAt(int position) {
+        return null;
+    }
+}
@@ -0,0 +1,143 @@
+package org.apmem.tools.layouts.benchmark;
+
+import org.apmem.tools.layouts.logic.ChipStore;
+import org.apmem.tools.layouts.logic.CommonLogic;
+import org.apmem.tools.layouts.logic.ConfigDefinition;
+import org.apmem.tools.layouts.logic.DefinitionPool;
+import org.apmem.tools.layouts.logic.LineDefinition;
+import org.apmem.tools.layouts.logic.ViewDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pasting chips with {@code AstroFlowLayout.addChipAt} in a loop against a single
+ * {@code AstroFlowLayout.addChips} call, on the children list and the chip cache. Both end with
+ * one measure pass, as the layout requests of a frame are merged.
+ * <p>
+ * For every chip {@code addChipAt} counts the chips before the child index it is given to find
+ * the chip position, {@code addChips} counts them once. The layout request, the listener call
+ * and the text reset of the auto complete view it also saves per chip need the Android views
+ * and are not measured here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChipInsertionBenchmark {
+    private static final ChipStore.IdProvider<String> ID_PROVIDER = new ChipStore.IdProvider<String>() {
+        @Override
+        public Object getId(String chip) {
+            return chip;
+        }
+    };
+
+    // stands for the auto complete view, the last child
+    private static final Integer AUTO_COMPLETE_VIEW = -1;
+
+    @Param({"10", "100", "500"})
+    public int chipCount;
+
+    private ConfigDefinition config;
+    private DefinitionPool pool;
+    private final ChipStore<Integer, String> store = new ChipStore<>(ID_PROVIDER);
+    private final List<Integer> children = new ArrayList<>();
+    private final List<ViewDefinition> views = new ArrayList<>();
+    private final List<LineDefinition> lines = new ArrayList<>();
+    private int[] widths;
+    private String[] chips;
+
+    @Setup
+    public void setUp() {
+        config = new ConfigDefinition();
+        config.setMaxWidth(LayoutState.CONTROL_WIDTH);
+        config.setMaxHeight(LayoutState.CONTROL_HEIGHT);
+        config.setWidthMode(CommonLogic.MODE_EXACTLY);
+        config.setHeightMode(CommonLogic.MODE_UNSPECIFIED);
+        config.setCheckCanFit(true);
+        pool = new DefinitionPool(config);
+
+        Random random = new Random(42);
+        widths = new int[chipCount];
+        chips = new String[chipCount];
+        for (int i = 0; i < chipCount; i++) {
+            widths[i] = 120 + random.nextInt(280);
+            chips[i] = "user" + i + "@example.com";
+        }
+    }
+
+    @Benchmark
+    public int addChipAt() {
+        reset();
+        for (int i = 0; i < chipCount; i++) {
+            // getObjectView caches the chip, addChipAt inserts it before the auto complete view
+            store.put(i, chips[i]);
+            final int index = children.size() - 1;
+            children.add(index, i);
+            store.add(countChipsBefore(index), i, chips[i]);
+        }
+        return measurePass();
+    }
+
+    @Benchmark
+    public int addChips() {
+        reset();
+        int index = children.size() - 1;
+        int chipPosition = countChipsBefore(index);
+        for (int i = 0; i < chipCount; i++) {
+            store.put(i, chips[i]);
+            store.add(chipPosition++, i, chips[i]);
+            children.add(index++, i);
+        }
+        return measurePass();
+    }
+
+    private void reset() {
+        store.clear();
+        children.clear();
+        children.add(AUTO_COMPLETE_VIEW);
+    }
+
+    private int countChipsBefore(int index) {
+        int position = 0;
+        for (int i = 0; i < index; i++) {
+            if (store.contains(children.get(i))) {
+                position++;
+            }
+        }
+        return position;
+    }
+
+    private int measurePass() {
+        pool.recycleAll();
+        views.clear();
+        lines.clear();
+        final int count = children.size() - 1;
+        for (int i = 0; i < count; i++) {
+            final ViewDefinition view = pool.obtainView(null);
+            view.setWidth(widths[children.get(i)]);
+            view.setHeight(64);
+            view.setMargins(8, 0, 0, 0);
+            views.add(view);
+        }
+        CommonLogic.fillLines(views, lines, config, pool);
+        CommonLogic.calculateLinesAndChildPosition(lines);
+        final LineDefinition lastLine = lines.get(lines.size() - 1);
+        return lastLine.getLineStartThickness() + lastLine.getLineThickness();
+    }
+}
@@ -0,0 +1,97 @@
+package org.apmem.tools.layouts.benchmark;
+
+import org.apmem.tools.layouts.logic.CommonLogic;
+import org.apmem.tools.layouts.logic.ConfigDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the stages of a measure pass in {@link CommonLogic}. Run with
+ * {@code ./gradlew :libraries:layouts-benchmark:jmh}.
+ * <p>
+ * The fill and measure pass benchmarks include resetting the child sizes, which is the same
+ * for every configuration and costs far less than filling the lines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonLogicBenchmark {
+
+    /**
+     * Lines are built once per iteration; calculating positions does not change its input.
+     */
+    @State(Scope.Thread)
+    public static class FilledState extends LayoutState {
+        @Setup(Level.Iteration)
+        public void fill() {
+            resetLines();
+        }
+    }
+
+    /**
+     * Applying gravity moves and stretches the children, so the lines are rebuilt before every
+     * call. Expect more noise than the other benchmarks for the smallest child counts.
+     */
+    @State(Scope.Thread)
+    public static class PositionedState extends LayoutState {
+        @Setup(Level.Invocation)
+        public void position() {
+            resetLines();
+        }
+    }
+
+    @Benchmark
+    public int fillLines(LayoutState state) {
+        state.resetViews();
+        CommonLogic.fillLines(state.views, state.lines, state.config);
+        return state.lines.size();
+    }
+
+    @Benchmark
+    public int fillLinesPooled(LayoutState state) {
+        state.resetViews();
+        CommonLogic.fillLines(state.views, state.lines, state.config, state.pool);
+        return state.lines.size();
+    }
+
+    @Benchmark
+    public int calculateLinesAndChildPosition(FilledState state) {
+        CommonLogic.calculateLinesAndChildPosition(state.lines);
+        return state.contentThickness();
+    }
+
+    @Benchmark
+    public int applyGravityToLines(PositionedState state) {
+        final ConfigDefinition config = state.config;
+        CommonLogic.applyGravityToLines(state.lines, config.getMaxLength(), config.getMaxThickness(), config);
+        return state.lines.size();
+    }
+
+    /**
+     * Everything FlowLayout does for a measure pass, minus measuring the children.
+     */
+    @Benchmark
+    public int measurePass(LayoutState state) {
+        final ConfigDefinition config = state.config;
+        state.resetViews();
+        CommonLogic.fillLines(state.views, state.lines, config, state.pool);
+        CommonLogic.calculateLinesAndChildPosition(state.lines);
+        final int length = CommonLogic.findSize(config.getLengthMode(), config.getMaxLength(), state.contentLength());
+        final int thickness = CommonLogic.findSize(config.getThicknessMode(), config.getMaxThickness(), state.contentThickness());
+        CommonLogic.applyGravityToLines(state.lines, length, thickness, config);
+        return length + thickness;
+    }
+}
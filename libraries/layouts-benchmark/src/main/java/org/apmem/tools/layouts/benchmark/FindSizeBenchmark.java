@@ -0,0 +1,51 @@
+package org.apmem.tools.layouts.benchmark;
+
+import org.apmem.tools.layouts.logic.CommonLogic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CommonLogic#findSize} does not depend on the children, so it is kept apart from
+ * {@link CommonLogicBenchmark} and only varies by measure mode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FindSizeBenchmark {
+    @Param({"unspecified", "at_most", "exactly"})
+    public String mode;
+
+    private int modeSize;
+    private int controlMaxSize = 1080;
+    private int contentSize = 1500;
+
+    @Setup
+    public void setUp() {
+        if ("at_most".equals(mode)) {
+            modeSize = CommonLogic.MODE_AT_MOST;
+        } else if ("exactly".equals(mode)) {
+            modeSize = CommonLogic.MODE_EXACTLY;
+        } else {
+            modeSize = CommonLogic.MODE_UNSPECIFIED;
+        }
+    }
+
+    @Benchmark
+    public int findSize() {
+        return CommonLogic.findSize(modeSize, controlMaxSize, contentSize);
+    }
+}
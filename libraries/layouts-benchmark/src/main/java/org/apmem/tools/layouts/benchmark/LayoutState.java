@@ -0,0 +1,123 @@
+package org.apmem.tools.layouts.benchmark;
+
+import org.apmem.tools.layouts.logic.CommonLogic;
+import org.apmem.tools.layouts.logic.ConfigDefinition;
+import org.apmem.tools.layouts.logic.DefinitionPool;
+import org.apmem.tools.layouts.logic.LayoutGravity;
+import org.apmem.tools.layouts.logic.LineDefinition;
+import org.apmem.tools.layouts.logic.ViewDefinition;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Children and configuration shared by the layout benchmarks. Child sizes come from a fixed
+ * seed so every run lays out the same content.
+ */
+@State(Scope.Thread)
+public class LayoutState {
+    static final int CONTROL_WIDTH = 1080;
+    static final int CONTROL_HEIGHT = 1920;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int childCount;
+
+    @Param({"horizontal", "vertical"})
+    public String orientation;
+
+    @Param({"false", "true"})
+    public boolean rtl;
+
+    @Param({"0", "5"})
+    public int maxLines;
+
+    @Param({"false", "true"})
+    public boolean weighted;
+
+    ConfigDefinition config;
+    DefinitionPool pool;
+    final List<ViewDefinition> views = new ArrayList<>();
+    final List<LineDefinition> lines = new ArrayList<>();
+
+    private int[] widths;
+    private int[] heights;
+    private int[] margins;
+    private float[] weights;
+
+    @Setup
+    public void setUp() {
+        config = new ConfigDefinition();
+        config.setOrientation("vertical".equals(orientation) ? CommonLogic.VERTICAL : CommonLogic.HORIZONTAL);
+        config.setLayoutDirection(rtl ? CommonLogic.LAYOUT_DIRECTION_RTL : CommonLogic.LAYOUT_DIRECTION_LTR);
+        config.setMaxLines(maxLines);
+        config.setGravity(weighted ? LayoutGravity.FILL : LayoutGravity.CENTER);
+        config.setWeightDefault(weighted ? 1.0f : 0.0f);
+        config.setMaxWidth(CONTROL_WIDTH);
+        config.setMaxHeight(CONTROL_HEIGHT);
+        config.setWidthMode(CommonLogic.MODE_EXACTLY);
+        config.setHeightMode(CommonLogic.MODE_EXACTLY);
+        config.setCheckCanFit(true);
+        pool = new DefinitionPool(config);
+
+        Random random = new Random(42);
+        widths = new int[childCount];
+        heights = new int[childCount];
+        margins = new int[childCount];
+        weights = new float[childCount];
+        for (int i = 0; i < childCount; i++) {
+            widths[i] = 40 + random.nextInt(160);
+            heights[i] = 40 + random.nextInt(40);
+            margins[i] = random.nextInt(8);
+            weights[i] = weighted && random.nextInt(4) == 0 ? 1 + random.nextInt(3) : -1.0f;
+        }
+    }
+
+    /**
+     * Resets {@link #views} to freshly measured children and clears {@link #lines}. Definitions
+     * come from the pool so the benchmarks only see allocations made by the code under test.
+     */
+    void resetViews() {
+        pool.recycleAll();
+        views.clear();
+        lines.clear();
+        for (int i = 0; i < childCount; i++) {
+            final ViewDefinition view = pool.obtainView(null);
+            view.setWidth(widths[i]);
+            view.setHeight(heights[i]);
+            view.setMargins(margins[i], margins[i], margins[i], margins[i]);
+            view.setWeight(weights[i]);
+            views.add(view);
+        }
+    }
+
+    /**
+     * Builds the lines and their positions, leaving everything ready for gravity to be applied.
+     */
+    void resetLines() {
+        resetViews();
+        CommonLogic.fillLines(views, lines, config, pool);
+        CommonLogic.calculateLinesAndChildPosition(lines);
+    }
+
+    int contentLength() {
+        int length = 0;
+        final int linesCount = lines.size();
+        for (int i = 0; i < linesCount; i++) {
+            length = Math.max(length, lines.get(i).getLineLength());
+        }
+        return length;
+    }
+
+    int contentThickness() {
+        if (lines.isEmpty()) {
+            return 0;
+        }
+        final LineDefinition lastLine = lines.get(lines.size() - 1);
+        return lastLine.getLineStartThickness() + lastLine.getLineThickness();
+    }
+}
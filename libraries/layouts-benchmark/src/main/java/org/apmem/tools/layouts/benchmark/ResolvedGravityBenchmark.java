@@ -0,0 +1,116 @@
+package org.apmem.tools.layouts.benchmark;
+
+import org.apmem.tools.layouts.logic.CommonLogic;
+import org.apmem.tools.layouts.logic.ConfigDefinition;
+import org.apmem.tools.layouts.logic.DefinitionPool;
+import org.apmem.tools.layouts.logic.LayoutGravity;
+import org.apmem.tools.layouts.logic.LineDefinition;
+import org.apmem.tools.layouts.logic.ViewDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure pass with gravity and weight resolved on every pass, as before FlowLayout cached
+ * them in its layout params, against one where they are read from the cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResolvedGravityBenchmark {
+    @Param({"1000"})
+    public int childCount;
+
+    @Param({"horizontal", "vertical"})
+    public String orientation;
+
+    private ConfigDefinition config;
+    private DefinitionPool pool;
+    private final List<ViewDefinition> views = new ArrayList<>();
+    private final List<LineDefinition> lines = new ArrayList<>();
+
+    private int[] widths;
+    private int[] heights;
+    private int[] gravities;
+    private float[] weights;
+    // what FlowLayout keeps in its layout params between passes
+    private int[] resolvedGravities;
+    private float[] resolvedWeights;
+
+    @Setup
+    public void setUp() {
+        config = new ConfigDefinition();
+        config.setOrientation("vertical".equals(orientation) ? CommonLogic.VERTICAL : CommonLogic.HORIZONTAL);
+        config.setGravity(LayoutGravity.START | LayoutGravity.CENTER_VERTICAL);
+        config.setWeightDefault(1.0f);
+        config.setMaxWidth(LayoutState.CONTROL_WIDTH);
+        config.setMaxHeight(LayoutState.CONTROL_HEIGHT);
+        config.setWidthMode(CommonLogic.MODE_EXACTLY);
+        config.setHeightMode(CommonLogic.MODE_EXACTLY);
+        pool = new DefinitionPool(config);
+
+        final int[] childGravities = {LayoutGravity.NO_GRAVITY, LayoutGravity.TOP, LayoutGravity.END | LayoutGravity.BOTTOM};
+        Random random = new Random(42);
+        widths = new int[childCount];
+        heights = new int[childCount];
+        gravities = new int[childCount];
+        weights = new float[childCount];
+        resolvedGravities = new int[childCount];
+        resolvedWeights = new float[childCount];
+        for (int i = 0; i < childCount; i++) {
+            widths[i] = 40 + random.nextInt(160);
+            heights[i] = 40 + random.nextInt(40);
+            gravities[i] = childGravities[random.nextInt(childGravities.length)];
+            weights[i] = random.nextInt(4) == 0 ? 2.0f : -1.0f;
+            resolvedGravities[i] = CommonLogic.resolveGravity(gravities[i], config);
+            resolvedWeights[i] = CommonLogic.resolveWeight(weights[i], config);
+        }
+    }
+
+    @Benchmark
+    public int resolvedEveryPass() {
+        return measurePass(false);
+    }
+
+    @Benchmark
+    public int resolvedOnce() {
+        return measurePass(true);
+    }
+
+    private int measurePass(boolean cached) {
+        pool.recycleAll();
+        views.clear();
+        lines.clear();
+        for (int i = 0; i < childCount; i++) {
+            final ViewDefinition view = pool.obtainView(null);
+            view.setWidth(widths[i]);
+            view.setHeight(heights[i]);
+            view.setGravity(gravities[i]);
+            view.setWeight(weights[i]);
+            if (cached) {
+                view.setResolved(resolvedGravities[i], resolvedWeights[i]);
+            }
+            views.add(view);
+        }
+        CommonLogic.fillLines(views, lines, config, pool);
+        CommonLogic.calculateLinesAndChildPosition(lines);
+        CommonLogic.applyGravityToLines(lines, config.getMaxLength(), config.getMaxThickness(), config);
+        return lines.size();
+    }
+}
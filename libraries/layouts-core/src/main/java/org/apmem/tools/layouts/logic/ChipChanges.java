@@ -0,0 +1,164 @@
+package org.apmem.tools.layouts.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chips added, removed and moved between two states of a chips layout. Chips are matched by the
+ * view showing them, a view whose chip was replaced counts as removed and added.
+ * <p>
+ * Removed chips and the start of moves have positions in the old chips, added chips and the
+ * end of moves have positions in the new chips. Moves are kept to the fewest chips, the chips
+ * staying in the same order relative to each other are not reported.
+ *
+ * @param <V> chip
+ */
+public class ChipChanges<V> {
+
+    public static class Change<V> {
+        private final V chip;
+        private final int fromPosition;
+        private final int toPosition;
+
+        Change(V chip, int fromPosition, int toPosition) {
+            this.chip = chip;
+            this.fromPosition = fromPosition;
+            this.toPosition = toPosition;
+        }
+
+        public V getChip() {
+            return chip;
+        }
+
+        /**
+         * @return position in the old chips, -1 for added chips
+         */
+        public int getFromPosition() {
+            return fromPosition;
+        }
+
+        /**
+         * @return position in the new chips, -1 for removed chips
+         */
+        public int getToPosition() {
+            return toPosition;
+        }
+    }
+
+    private final List<Change<V>> added;
+    private final List<Change<V>> removed;
+    private final List<Change<V>> moved;
+
+    private ChipChanges(List<Change<V>> added, List<Change<V>> removed, List<Change<V>> moved) {
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.moved = Collections.unmodifiableList(moved);
+    }
+
+    /**
+     * Compares two states of the chips, each given as the views in order and their chips at the
+     * same positions, like {@link ChipStore#getViews()} and {@link ChipStore#getChips()}.
+     */
+    public static <K, V> ChipChanges<V> compute(List<K> oldViews, List<V> oldChips, List<K> newViews, List<V> newChips) {
+        final Map<K, Integer> oldPositions = new HashMap<>();
+        final int oldCount = oldViews.size();
+        for (int i = 0; i < oldCount; i++) {
+            oldPositions.put(oldViews.get(i), i);
+        }
+
+        final List<Change<V>> added = new ArrayList<>();
+        final List<Change<V>> removed = new ArrayList<>();
+        final List<Change<V>> moved = new ArrayList<>();
+        // chips in both states: their new and old positions, in new order
+        final int newCount = newViews.size();
+        final int[] keptNew = new int[newCount];
+        final int[] keptOld = new int[newCount];
+        final boolean[] oldKept = new boolean[oldCount];
+        int keptCount = 0;
+        for (int i = 0; i < newCount; i++) {
+            final Integer oldPosition = oldPositions.get(newViews.get(i));
+            if (oldPosition == null || oldChips.get(oldPosition) != newChips.get(i)) {
+                added.add(new Change<>(newChips.get(i), -1, i));
+                continue;
+            }
+            keptNew[keptCount] = i;
+            keptOld[keptCount] = oldPosition;
+            keptCount++;
+            oldKept[oldPosition] = true;
+        }
+        for (int i = 0; i < oldCount; i++) {
+            if (!oldKept[i]) {
+                removed.add(new Change<>(oldChips.get(i), i, -1));
+            }
+        }
+
+        final boolean[] inOrder = longestIncreasing(keptOld, keptCount);
+        for (int i = 0; i < keptCount; i++) {
+            if (!inOrder[i]) {
+                moved.add(new Change<>(newChips.get(keptNew[i]), keptOld[i], keptNew[i]));
+            }
+        }
+        return new ChipChanges<>(added, removed, moved);
+    }
+
+    /**
+     * @return added chips in order of their new positions
+     */
+    public List<Change<V>> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return removed chips in order of their old positions
+     */
+    public List<Change<V>> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return moved chips in order of their new positions
+     */
+    public List<Change<V>> getMoved() {
+        return moved;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && moved.isEmpty();
+    }
+
+    /**
+     * @return which of the first {@code count} values belong to their longest increasing
+     * subsequence
+     */
+    private static boolean[] longestIncreasing(int[] values, int count) {
+        final boolean[] result = new boolean[count];
+        // tails[l] is the index of the smallest last value of an increasing run of length l + 1
+        final int[] tails = new int[count];
+        final int[] previous = new int[count];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (values[tails[middle]] < values[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            result[i] = true;
+        }
+        return result;
+    }
+}
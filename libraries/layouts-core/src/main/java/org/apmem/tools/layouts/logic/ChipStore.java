@@ -0,0 +1,269 @@
+package org.apmem.tools.layouts.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chips of a chips layout in their order, indexed by the view showing them and by chip id.
+ * Adding at the end, lookups and removals are constant time; reading all chips in order returns
+ * the same list until the chips change.
+ * <p>
+ * Not synchronized, all calls are expected on the UI thread.
+ *
+ * @param <K> view showing a chip
+ * @param <V> chip
+ */
+public class ChipStore<K, V> {
+
+    public interface IdProvider<V> {
+        /**
+         * @return id of the chip, or null when it has none
+         */
+        Object getId(V chip);
+    }
+
+    private static class Entry<K, V> {
+        final K view;
+        V chip;
+        Object id;
+        Entry<K, V> previous;
+        Entry<K, V> next;
+        // other chips with the same id, in order of adding
+        Entry<K, V> previousSameId;
+        Entry<K, V> nextSameId;
+
+        Entry(K view) {
+            this.view = view;
+        }
+    }
+
+    private final IdProvider<V> idProvider;
+    private final Map<K, Entry<K, V>> byView = new HashMap<>();
+    // first chip with each id
+    private final Map<Object, Entry<K, V>> byId = new HashMap<>();
+    private Entry<K, V> first;
+    private Entry<K, V> last;
+    // in order, null when chips changed since they were read
+    private List<V> chips;
+    private List<K> views;
+
+    public ChipStore(IdProvider<V> idProvider) {
+        this.idProvider = idProvider;
+    }
+
+    public int size() {
+        return this.byView.size();
+    }
+
+    public boolean contains(K view) {
+        return this.byView.containsKey(view);
+    }
+
+    public V get(K view) {
+        final Entry<K, V> entry = this.byView.get(view);
+        return entry != null ? entry.chip : null;
+    }
+
+    /**
+     * @return view of the chip at {@code position} in chip order
+     */
+    public K getViewAt(int position) {
+        return getViews().get(position);
+    }
+
+    /**
+     * @return view of the first chip with the id, or null when there is none
+     */
+    public K findById(Object id) {
+        final Entry<K, V> entry = id != null ? this.byId.get(id) : null;
+        return entry != null ? entry.view : null;
+    }
+
+    /**
+     * Adds the chip after all others, or replaces the chip of a view that is already added
+     * without moving it.
+     */
+    public void put(K view, V chip) {
+        final Entry<K, V> entry = this.byView.get(view);
+        if (entry != null) {
+            unlinkId(entry);
+            entry.chip = chip;
+            linkId(entry);
+            this.chips = null;
+            return;
+        }
+        add(size(), view, chip);
+    }
+
+    /**
+     * Adds the chip at {@code position} in chip order, moving it there when the view is added
+     * already. Positions after the last chip add it at the end.
+     */
+    public void add(int position, K view, V chip) {
+        Entry<K, V> entry = this.byView.get(view);
+        if (entry != null) {
+            unlink(entry);
+        } else {
+            entry = new Entry<>(view);
+        }
+        entry.chip = chip;
+        linkBefore(entry, findEntry(position));
+        this.chips = null;
+        this.views = null;
+    }
+
+    /**
+     * @return the removed chip, or null when the view was not added
+     */
+    public V remove(K view) {
+        final Entry<K, V> entry = this.byView.get(view);
+        if (entry == null) {
+            return null;
+        }
+        unlink(entry);
+        this.chips = null;
+        this.views = null;
+        return entry.chip;
+    }
+
+    public void clear() {
+        this.byView.clear();
+        this.byId.clear();
+        this.first = null;
+        this.last = null;
+        this.chips = null;
+        this.views = null;
+    }
+
+    /**
+     * @return unmodifiable list of all chips in order, the same list until the chips change
+     */
+    public List<V> getChips() {
+        if (this.chips == null) {
+            final List<V> chips = new ArrayList<>(size());
+            for (Entry<K, V> entry = this.first; entry != null; entry = entry.next) {
+                chips.add(entry.chip);
+            }
+            this.chips = Collections.unmodifiableList(chips);
+        }
+        return this.chips;
+    }
+
+    /**
+     * @return unmodifiable list of the views of all chips in order, the same list until the
+     * chips change
+     */
+    public List<K> getViews() {
+        if (this.views == null) {
+            final List<K> views = new ArrayList<>(size());
+            for (Entry<K, V> entry = this.first; entry != null; entry = entry.next) {
+                views.add(entry.view);
+            }
+            this.views = Collections.unmodifiableList(views);
+        }
+        return this.views;
+    }
+
+    /**
+     * @return entry at the position, walking from the closer end, or null for the end
+     */
+    private Entry<K, V> findEntry(int position) {
+        final int size = size();
+        if (position >= size) {
+            return null;
+        }
+        if (position <= 0) {
+            return this.first;
+        }
+        if (this.views != null) {
+            return this.byView.get(this.views.get(position));
+        }
+        Entry<K, V> entry;
+        if (position < size / 2) {
+            entry = this.first;
+            for (int i = 0; i < position; i++) {
+                entry = entry.next;
+            }
+        } else {
+            entry = this.last;
+            for (int i = size - 1; i > position; i--) {
+                entry = entry.previous;
+            }
+        }
+        return entry;
+    }
+
+    private void linkBefore(Entry<K, V> entry, Entry<K, V> next) {
+        entry.next = next;
+        entry.previous = next != null ? next.previous : this.last;
+        if (entry.previous != null) {
+            entry.previous.next = entry;
+        } else {
+            this.first = entry;
+        }
+        if (next != null) {
+            next.previous = entry;
+        } else {
+            this.last = entry;
+        }
+        this.byView.put(entry.view, entry);
+        linkId(entry);
+    }
+
+    private void unlink(Entry<K, V> entry) {
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else {
+            this.first = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        } else {
+            this.last = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+        this.byView.remove(entry.view);
+        unlinkId(entry);
+    }
+
+    private void linkId(Entry<K, V> entry) {
+        entry.id = this.idProvider.getId(entry.chip);
+        if (entry.id == null) {
+            return;
+        }
+        final Entry<K, V> head = this.byId.get(entry.id);
+        if (head == null) {
+            this.byId.put(entry.id, entry);
+            return;
+        }
+        Entry<K, V> tail = head;
+        while (tail.nextSameId != null) {
+            tail = tail.nextSameId;
+        }
+        tail.nextSameId = entry;
+        entry.previousSameId = tail;
+    }
+
+    private void unlinkId(Entry<K, V> entry) {
+        if (entry.id == null) {
+            return;
+        }
+        if (entry.previousSameId != null) {
+            entry.previousSameId.nextSameId = entry.nextSameId;
+        } else if (entry.nextSameId != null) {
+            this.byId.put(entry.id, entry.nextSameId);
+        } else {
+            this.byId.remove(entry.id);
+        }
+        if (entry.nextSameId != null) {
+            entry.nextSameId.previousSameId = entry.previousSameId;
+        }
+        entry.previousSameId = null;
+        entry.nextSameId = null;
+        entry.id = null;
+    }
+}
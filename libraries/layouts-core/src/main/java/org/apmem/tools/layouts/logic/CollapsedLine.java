@@ -0,0 +1,55 @@
+package org.apmem.tools.layouts.logic;
+
+/**
+ * First line of a collapsed flow, which shows its first children followed by a summary of the
+ * others (e.g. "+5"). The children staying visible are found from their lengths alone, without
+ * filling the lines; only the children up to the one not fitting on the first line are looked
+ * at, so the others never have to be measured.
+ */
+public class CollapsedLine {
+
+    public interface Children {
+        int getCount();
+
+        /**
+         * @return length of the child along the line, including its spacing
+         */
+        int getLength(int index);
+
+        boolean isNewLine(int index);
+    }
+
+    private CollapsedLine() {
+    }
+
+    /**
+     * Counts the children staying visible on the first line. When not all children fit, the
+     * last ones of the first line make room for the summary, though the first child always
+     * stays, as a line always takes its first child.
+     *
+     * @param maxLength     length of the line
+     * @param summaryLength length of the summary, including its spacing
+     * @return number of children staying visible, all of them when they fit on the first line
+     */
+    public static int countVisible(Children children, int maxLength, int summaryLength) {
+        final int count = children.getCount();
+        int visible = 0;
+        int lineLength = 0;
+        while (visible < count) {
+            final int length = children.getLength(visible);
+            if (visible > 0 && (children.isNewLine(visible) || lineLength + length > maxLength)) {
+                break;
+            }
+            lineLength += length;
+            visible++;
+        }
+        if (visible == count) {
+            return count;
+        }
+        while (visible > 1 && lineLength + summaryLength > maxLength) {
+            visible--;
+            lineLength -= children.getLength(visible);
+        }
+        return visible;
+    }
+}
@@ -0,0 +1,297 @@
+package org.apmem.tools.layouts.logic;
+
+import java.util.Collections;
+import java.util.List;
+
+public class CommonLogic {
+    public static final int HORIZONTAL = 0;
+    public static final int VERTICAL = 1;
+
+    /** Same values as {@code View.LAYOUT_DIRECTION_LTR} and {@code View.LAYOUT_DIRECTION_RTL}. */
+    public static final int LAYOUT_DIRECTION_LTR = 0;
+    public static final int LAYOUT_DIRECTION_RTL = 1;
+
+    /** Same values as the {@code View.MeasureSpec} modes. */
+    public static final int MODE_UNSPECIFIED = 0;
+    public static final int MODE_EXACTLY = 1 << 30;
+    public static final int MODE_AT_MOST = 2 << 30;
+
+    public static void calculateLinesAndChildPosition(List<LineDefinition> lines) {
+        calculateLinesAndChildPosition(lines, 0);
+    }
+
+    /**
+     * Same as {@link #calculateLinesAndChildPosition(List)} but keeps lines before
+     * {@code fromLine} as they are.
+     */
+    public static void calculateLinesAndChildPosition(List<LineDefinition> lines, int fromLine) {
+        int prevLinesThickness = 0;
+        if (fromLine > 0) {
+            final LineDefinition prevLine = lines.get(fromLine - 1);
+            prevLinesThickness = prevLine.getLineStartThickness() + prevLine.getLineThickness();
+        }
+        final int linesCount = lines.size();
+        for (int i = fromLine; i < linesCount; i++) {
+            final LineDefinition line = lines.get(i);
+            line.setLineStartThickness(prevLinesThickness);
+            prevLinesThickness += line.getLineThickness();
+            int prevChildThickness = 0;
+            final List<ViewDefinition> childViews = line.getViews();
+            final int childCount = childViews.size();
+            for (int j = 0; j < childCount; j++) {
+                ViewDefinition child = childViews.get(j);
+                child.setInlineStartLength(prevChildThickness);
+                prevChildThickness += child.getLength() + child.getSpacingLength();
+            }
+        }
+    }
+
+    public static void applyGravityToLines(List<LineDefinition> lines, int realControlLength, int realControlThickness, ConfigDefinition config) {
+        applyGravityToLines(lines, 0, realControlLength, realControlThickness, config);
+    }
+
+    /**
+     * Applies gravity to lines starting at {@code fromLine} only. Lines before it are only
+     * unaffected when there is no excess thickness to distribute, so callers have to
+     * make sure {@code realControlThickness} does not exceed the content thickness.
+     */
+    public static void applyGravityToLines(List<LineDefinition> lines, int fromLine, int realControlLength, int realControlThickness, ConfigDefinition config) {
+        final int linesCount = lines.size();
+        if (linesCount <= fromLine) {
+            return;
+        }
+
+        int remainingWeight = linesCount - fromLine;
+        LineDefinition lastLine = lines.get(linesCount - 1);
+        int excessThickness = realControlThickness - (lastLine.getLineThickness() + lastLine.getLineStartThickness());
+
+        if (excessThickness < 0) {
+            excessThickness = 0;
+        }
+
+        final LayoutRect container = config.getGravityContainer();
+        final LayoutRect result = config.getGravityResult();
+        final int gravity = getGravity(null, config);
+        int excessOffset = 0;
+        for (int i = fromLine; i < linesCount; i++) {
+            final LineDefinition child = lines.get(i);
+            int weight = 1;
+            int extraThickness = Math.round(excessThickness * weight / remainingWeight);
+
+            excessThickness -= extraThickness;
+            remainingWeight -= weight;
+
+            final int childLength = child.getLineLength();
+            final int childThickness = child.getLineThickness();
+
+            container.set(0, excessOffset, realControlLength, childThickness + extraThickness + excessOffset);
+            LayoutGravity.apply(gravity, childLength, childThickness, container, result);
+
+            excessOffset += extraThickness;
+            child.setLineStartLength(child.getLineStartLength() + result.left);
+            child.setLineStartThickness(child.getLineStartThickness() + result.top);
+            child.setLength(result.width());
+            child.setThickness(result.height());
+
+            applyGravityToLine(child, config);
+        }
+    }
+
+    public static void applyGravityToLine(LineDefinition line, ConfigDefinition config) {
+        final List<ViewDefinition> views = line.getViews();
+        final int viewCount = views.size();
+        if (viewCount <= 0) {
+            return;
+        }
+
+        float remainingWeight = 0;
+        for (int i = 0; i < viewCount; i++) {
+            final ViewDefinition child = views.get(i);
+            remainingWeight += getWeight(child, config);
+        }
+        final boolean weightBased = remainingWeight > 0;
+
+        ViewDefinition lastChild = views.get(viewCount - 1);
+        int excessLengthRemaining = line.getLineLength() - (lastChild.getLength() + lastChild.getSpacingLength() + lastChild.getInlineStartLength());
+        final LayoutRect container = config.getGravityContainer();
+        final LayoutRect result = config.getGravityResult();
+        int excessOffset = 0;
+        for (int i = 0; i < viewCount; i++) {
+            final ViewDefinition child = views.get(i);
+            float weight = getWeight(child, config);
+            int gravity = getGravity(child, config);
+            int extraLength;
+            if (!weightBased) {
+                extraLength = excessLengthRemaining / (viewCount - i);
+            } else {
+                extraLength = Math.round(excessLengthRemaining * weight / remainingWeight);
+                remainingWeight -= weight;
+            }
+            excessLengthRemaining -= extraLength;
+
+            final int childLength = child.getLength() + child.getSpacingLength();
+            final int childThickness = child.getThickness() + child.getSpacingThickness();
+
+            container.set(excessOffset, 0, childLength + extraLength + excessOffset, line.getLineThickness());
+            LayoutGravity.apply(gravity, childLength, childThickness, container, result);
+
+            excessOffset += extraLength;
+            child.setInlineStartLength(result.left + child.getInlineStartLength());
+            child.setInlineStartThickness(result.top);
+            child.setLength(result.width() - child.getSpacingLength());
+            child.setThickness(result.height() - child.getSpacingThickness());
+        }
+    }
+
+    public static int findSize(int modeSize, int controlMaxSize, int contentSize) {
+        int realControlSize;
+        switch (modeSize) {
+            case MODE_UNSPECIFIED:
+                realControlSize = contentSize;
+                break;
+            case MODE_AT_MOST:
+                realControlSize = Math.min(contentSize, controlMaxSize);
+                break;
+            case MODE_EXACTLY:
+                realControlSize = controlMaxSize;
+                break;
+            default:
+                realControlSize = contentSize;
+                break;
+        }
+        return realControlSize;
+    }
+
+    private static float getWeight(ViewDefinition child, ConfigDefinition config) {
+        if (child.isResolved()) {
+            return child.getResolvedWeight();
+        }
+        return resolveWeight(child.getWeight(), config);
+    }
+
+    /**
+     * @return weight of a child, {@link ConfigDefinition#getWeightDefault()} when the child does
+     * not specify one
+     */
+    public static float resolveWeight(float childWeight, ConfigDefinition config) {
+        return childWeight >= 0 ? childWeight : config.getWeightDefault();
+    }
+
+    private static int getGravity(ViewDefinition child, ConfigDefinition config) {
+        if (child != null && child.isResolved()) {
+            return child.getResolvedGravity();
+        }
+        return resolveGravity(child != null ? child.getGravity() : LayoutGravity.NO_GRAVITY, config);
+    }
+
+    /**
+     * Combines a child's gravity with the config's gravity, orientation and layout direction.
+     * The result only changes when one of those does, so callers may cache it.
+     */
+    public static int resolveGravity(int childGravity, ConfigDefinition config) {
+        int parentGravity = config.getGravity();
+
+        // get childGravity of child view (if exists)
+        if (childGravity == LayoutGravity.NO_GRAVITY) {
+            childGravity = parentGravity;
+        }
+
+        childGravity = getGravityFromRelative(childGravity, config);
+        parentGravity = getGravityFromRelative(parentGravity, config);
+
+        // add parent gravity to child gravity if child gravity is not specified
+        if ((childGravity & LayoutGravity.HORIZONTAL_GRAVITY_MASK) == 0) {
+            childGravity |= parentGravity & LayoutGravity.HORIZONTAL_GRAVITY_MASK;
+        }
+        if ((childGravity & LayoutGravity.VERTICAL_GRAVITY_MASK) == 0) {
+            childGravity |= parentGravity & LayoutGravity.VERTICAL_GRAVITY_MASK;
+        }
+
+        // if childGravity is still not specified - set default top - left gravity
+        if ((childGravity & LayoutGravity.HORIZONTAL_GRAVITY_MASK) == 0) {
+            childGravity |= LayoutGravity.LEFT;
+        }
+        if ((childGravity & LayoutGravity.VERTICAL_GRAVITY_MASK) == 0) {
+            childGravity |= LayoutGravity.TOP;
+        }
+
+        return childGravity;
+    }
+
+
+    public static int getGravityFromRelative(int childGravity, ConfigDefinition config) {
+        // swap directions for vertical non relative view
+        // if it is relative, then START is TOP, and we do not need to switch it here.
+        // it will be switched later on onMeasure stage when calculations will be with length and thickness
+        if (config.getOrientation() == CommonLogic.VERTICAL && (childGravity & LayoutGravity.RELATIVE_LAYOUT_DIRECTION) == 0) {
+            int horizontalGravity = childGravity;
+            childGravity = 0;
+            childGravity |= (horizontalGravity & LayoutGravity.HORIZONTAL_GRAVITY_MASK) >> LayoutGravity.AXIS_X_SHIFT << LayoutGravity.AXIS_Y_SHIFT;
+            childGravity |= (horizontalGravity & LayoutGravity.VERTICAL_GRAVITY_MASK) >> LayoutGravity.AXIS_Y_SHIFT << LayoutGravity.AXIS_X_SHIFT;
+        }
+
+        // for relative layout and RTL direction swap left and right gravity
+        if (config.getLayoutDirection() == LAYOUT_DIRECTION_RTL && (childGravity & LayoutGravity.RELATIVE_LAYOUT_DIRECTION) != 0) {
+            int ltrGravity = childGravity;
+            childGravity = 0;
+            childGravity |= (ltrGravity & LayoutGravity.LEFT) == LayoutGravity.LEFT ? LayoutGravity.RIGHT : 0;
+            childGravity |= (ltrGravity & LayoutGravity.RIGHT) == LayoutGravity.RIGHT ? LayoutGravity.LEFT : 0;
+        }
+
+        return childGravity;
+    }
+
+    public static void fillLines(List<ViewDefinition> views, List<LineDefinition> lines, ConfigDefinition config) {
+        fillLines(views, lines, config, null);
+    }
+
+    public static void fillLines(List<ViewDefinition> views, List<LineDefinition> lines, ConfigDefinition config, DefinitionPool pool) {
+        fillLines(views, 0, lines, config, pool);
+    }
+
+    /**
+     * Continues filling {@code lines} with views starting at {@code fromView}, which always
+     * starts a new line. Used to re-flow only the tail of a layout.
+     */
+    public static void fillLines(List<ViewDefinition> views, int fromView, List<LineDefinition> lines, ConfigDefinition config, DefinitionPool pool) {
+        final int firstNewLine = lines.size();
+        LineDefinition currentLine = obtainLine(config, pool);
+        lines.add(currentLine);
+        final int count = views.size();
+        for (int i = fromView; i < count; i++) {
+            final ViewDefinition child = views.get(i);
+
+            boolean newLine = child.isNewLine() || (config.isCheckCanFit() && !currentLine.canFit(child));
+
+            if (newLine && config.getMaxLines() > 0 && lines.size() == config.getMaxLines())
+                break;
+
+            if (newLine) {
+                currentLine = obtainLine(config, pool);
+                lines.add(currentLine);
+            }
+
+            currentLine.addView(child);
+        }
+
+        // lines are filled in reading order and flipped once for RTL, inserting at the front
+        // of the lists instead is quadratic in the number of children
+        if (config.getLayoutDirection() == LAYOUT_DIRECTION_RTL) {
+            final int linesCount = lines.size();
+            if (config.getOrientation() == CommonLogic.HORIZONTAL) {
+                for (int i = firstNewLine; i < linesCount; i++) {
+                    Collections.reverse(lines.get(i).getViews());
+                }
+            } else {
+                Collections.reverse(lines.subList(firstNewLine, linesCount));
+                if (firstNewLine > 0) {
+                    Collections.rotate(lines, linesCount - firstNewLine);
+                }
+            }
+        }
+    }
+
+    private static LineDefinition obtainLine(ConfigDefinition config, DefinitionPool pool) {
+        return pool != null ? pool.obtainLine() : new LineDefinition(config);
+    }
+}
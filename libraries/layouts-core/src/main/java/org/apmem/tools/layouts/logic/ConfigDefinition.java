@@ -1,8 +1,5 @@
 package org.apmem.tools.layouts.logic;
 
-import android.view.Gravity;
-import android.view.View;
-
 public class ConfigDefinition {
     private int orientation;
     private boolean debugDraw;
@@ -16,12 +13,16 @@ public class ConfigDefinition {
     private int heightMode;
     private int maxLines;
 
+    // scratch rects reused by the gravity pass so measuring does not allocate per line / child
+    private final LayoutRect gravityContainer = new LayoutRect();
+    private final LayoutRect gravityResult = new LayoutRect();
+
     public ConfigDefinition() {
         this.setOrientation(CommonLogic.HORIZONTAL);
         this.setDebugDraw(false);
         this.setWeightDefault(0.0f);
-        this.setGravity(Gravity.NO_GRAVITY);
-        this.setLayoutDirection(View.LAYOUT_DIRECTION_LTR);
+        this.setGravity(LayoutGravity.NO_GRAVITY);
+        this.setLayoutDirection(CommonLogic.LAYOUT_DIRECTION_LTR);
         this.setCheckCanFit(true);
         this.setMaxLines(0);
     }
@@ -67,10 +68,10 @@ public class ConfigDefinition {
     }
 
     public void setLayoutDirection(int layoutDirection) {
-        if (layoutDirection == View.LAYOUT_DIRECTION_RTL) {
+        if (layoutDirection == CommonLogic.LAYOUT_DIRECTION_RTL) {
             this.layoutDirection = layoutDirection;
         } else {
-            this.layoutDirection = View.LAYOUT_DIRECTION_LTR;
+            this.layoutDirection = CommonLogic.LAYOUT_DIRECTION_LTR;
         }
     }
 
@@ -121,4 +122,12 @@ public class ConfigDefinition {
     public void setMaxLines(int maxLines) {
         this.maxLines = maxLines;
     }
+
+    LayoutRect getGravityContainer() {
+        return this.gravityContainer;
+    }
+
+    LayoutRect getGravityResult() {
+        return this.gravityResult;
+    }
 }
@@ -0,0 +1,88 @@
+package org.apmem.tools.layouts.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps {@link ViewDefinition} and {@link LineDefinition} instances between measure passes,
+ * so a layout only allocates new definitions when its child or line count grows.
+ */
+public class DefinitionPool {
+    private final ConfigDefinition config;
+    private final List<ViewDefinition> viewPool = new ArrayList<>();
+    private final List<LineDefinition> linePool = new ArrayList<>();
+    private int viewsInUse;
+    private int linesInUse;
+    private int viewsReferenced;
+
+    public DefinitionPool(ConfigDefinition config) {
+        this.config = config;
+    }
+
+    /**
+     * Marks every definition as free again. Call at the start of a measure pass.
+     */
+    public void recycleAll() {
+        this.viewsInUse = 0;
+        this.linesInUse = 0;
+    }
+
+    /**
+     * Keeps the first {@code views} view definitions and {@code lines} line definitions in use
+     * and frees the rest. Used when only the tail of a layout is re-flowed.
+     */
+    public void recycleFrom(int views, int lines) {
+        this.viewsInUse = views;
+        this.linesInUse = lines;
+    }
+
+    public ViewDefinition obtainView(Object child) {
+        ViewDefinition view;
+        if (this.viewsInUse < this.viewPool.size()) {
+            view = this.viewPool.get(this.viewsInUse);
+        } else {
+            view = new ViewDefinition(this.config, child);
+            this.viewPool.add(view);
+        }
+        view.reset(child);
+        this.viewsInUse++;
+        this.viewsReferenced = Math.max(this.viewsReferenced, this.viewsInUse);
+        return view;
+    }
+
+    public LineDefinition obtainLine() {
+        LineDefinition line;
+        if (this.linesInUse < this.linePool.size()) {
+            line = this.linePool.get(this.linesInUse);
+            line.reset();
+        } else {
+            line = new LineDefinition(this.config);
+            this.linePool.add(line);
+        }
+        this.linesInUse++;
+        return line;
+    }
+
+    /**
+     * Drops references to child views that were obtained in an earlier pass but not in the
+     * current one (e.g. removed chips), so pooled definitions do not keep them alive.
+     * Call at the end of a measure pass.
+     */
+    public void releaseUnused() {
+        for (int i = this.viewsInUse; i < this.viewsReferenced; i++) {
+            this.viewPool.get(i).reset(null);
+        }
+        for (int i = this.linesInUse; i < this.linePool.size(); i++) {
+            this.linePool.get(i).reset();
+        }
+        this.viewsReferenced = this.viewsInUse;
+    }
+
+    public int getPooledViewCount() {
+        return this.viewPool.size();
+    }
+
+    public int getPooledLineCount() {
+        return this.linePool.size();
+    }
+}
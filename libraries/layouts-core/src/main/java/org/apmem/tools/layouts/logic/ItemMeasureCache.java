@@ -0,0 +1,155 @@
+package org.apmem.tools.layouts.logic;
+
+import java.util.Arrays;
+
+/**
+ * Measured sizes of items by position, kept between layout passes so lines can be re-flowed
+ * after adapter changes without binding and measuring every item before the changed ones again.
+ * <p>
+ * Positions follow the adapter: inserting, removing and moving items shifts the cached sizes,
+ * changed items lose theirs.
+ */
+public class ItemMeasureCache {
+    private final ConfigDefinition config;
+    private final ViewDefinition probe;
+
+    // per position, positions at or after size are not measured
+    private int size;
+    private boolean[] measured = new boolean[0];
+    private int[] width = new int[0];
+    private int[] height = new int[0];
+    private int[] leftMargin = new int[0];
+    private int[] topMargin = new int[0];
+    private int[] rightMargin = new int[0];
+    private int[] bottomMargin = new int[0];
+    private boolean[] newLine = new boolean[0];
+
+    public ItemMeasureCache(ConfigDefinition config) {
+        this.config = config;
+        this.probe = new ViewDefinition(config, null);
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+
+    public void put(int position, int width, int height, int leftMargin, int topMargin, int rightMargin,
+                    int bottomMargin, boolean newLine) {
+        if (position >= this.size) {
+            ensureCapacity(position + 1);
+            Arrays.fill(this.measured, this.size, position, false);
+            this.size = position + 1;
+        }
+        this.measured[position] = true;
+        this.width[position] = width;
+        this.height[position] = height;
+        this.leftMargin[position] = leftMargin;
+        this.topMargin[position] = topMargin;
+        this.rightMargin[position] = rightMargin;
+        this.bottomMargin[position] = bottomMargin;
+        this.newLine[position] = newLine;
+    }
+
+    public boolean isMeasured(int position) {
+        return position >= 0 && position < this.size && this.measured[position];
+    }
+
+    /**
+     * Copies the cached size, margins and new line flag of a measured item to {@code view}.
+     */
+    public void apply(int position, ViewDefinition view) {
+        view.setWidth(this.width[position]);
+        view.setHeight(this.height[position]);
+        view.setMargins(this.leftMargin[position], this.topMargin[position], this.rightMargin[position], this.bottomMargin[position]);
+        view.setNewLine(this.newLine[position]);
+    }
+
+    /**
+     * @return whether the measured item at {@code position} has to start a new line after {@code line}
+     */
+    public boolean startsNewLine(int position, LineDefinition line) {
+        apply(position, this.probe);
+        return this.probe.isNewLine() || !line.canFit(this.probe);
+    }
+
+    public void onItemsAdded(int positionStart, int itemCount) {
+        if (positionStart >= this.size) {
+            return;
+        }
+        ensureCapacity(this.size + itemCount);
+        shift(positionStart, positionStart + itemCount, this.size - positionStart);
+        Arrays.fill(this.measured, positionStart, positionStart + itemCount, false);
+        this.size += itemCount;
+    }
+
+    public void onItemsRemoved(int positionStart, int itemCount) {
+        if (positionStart >= this.size) {
+            return;
+        }
+        final int end = Math.min(this.size, positionStart + itemCount);
+        shift(end, positionStart, this.size - end);
+        this.size -= end - positionStart;
+    }
+
+    public void onItemsChanged(int positionStart, int itemCount) {
+        if (positionStart >= this.size) {
+            return;
+        }
+        Arrays.fill(this.measured, positionStart, Math.min(this.size, positionStart + itemCount), false);
+    }
+
+    /**
+     * Moves the sizes of {@code itemCount} items at {@code from}, so they start at {@code to}
+     * afterwards.
+     */
+    public void onItemsMoved(int from, int to, int itemCount) {
+        if (from == to) {
+            return;
+        }
+        final int end = Math.max(from, to) + itemCount;
+        if (end > this.size) {
+            // unmeasured positions are involved, only the positions before the move stay valid
+            this.size = Math.min(this.size, Math.min(from, to));
+            return;
+        }
+        final ItemMeasureCache moved = new ItemMeasureCache(this.config);
+        moved.ensureCapacity(itemCount);
+        copy(this, from, moved, 0, itemCount);
+        if (from < to) {
+            shift(from + itemCount, from, to - from);
+        } else {
+            shift(to, to + itemCount, from - to);
+        }
+        copy(moved, 0, this, to, itemCount);
+    }
+
+    private void shift(int from, int to, int count) {
+        copy(this, from, this, to, count);
+    }
+
+    private static void copy(ItemMeasureCache src, int srcPos, ItemMeasureCache dest, int destPos, int count) {
+        System.arraycopy(src.measured, srcPos, dest.measured, destPos, count);
+        System.arraycopy(src.width, srcPos, dest.width, destPos, count);
+        System.arraycopy(src.height, srcPos, dest.height, destPos, count);
+        System.arraycopy(src.leftMargin, srcPos, dest.leftMargin, destPos, count);
+        System.arraycopy(src.topMargin, srcPos, dest.topMargin, destPos, count);
+        System.arraycopy(src.rightMargin, srcPos, dest.rightMargin, destPos, count);
+        System.arraycopy(src.bottomMargin, srcPos, dest.bottomMargin, destPos, count);
+        System.arraycopy(src.newLine, srcPos, dest.newLine, destPos, count);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= this.width.length) {
+            return;
+        }
+        final int newCapacity = Math.max(capacity, Math.max(16, this.width.length * 2));
+        this.measured = Arrays.copyOf(this.measured, newCapacity);
+        this.width = Arrays.copyOf(this.width, newCapacity);
+        this.height = Arrays.copyOf(this.height, newCapacity);
+        this.leftMargin = Arrays.copyOf(this.leftMargin, newCapacity);
+        this.topMargin = Arrays.copyOf(this.topMargin, newCapacity);
+        this.rightMargin = Arrays.copyOf(this.rightMargin, newCapacity);
+        this.bottomMargin = Arrays.copyOf(this.bottomMargin, newCapacity);
+        this.newLine = Arrays.copyOf(this.newLine, newCapacity);
+    }
+}
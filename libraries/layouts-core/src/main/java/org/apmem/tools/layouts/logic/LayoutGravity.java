@@ -0,0 +1,123 @@
+package org.apmem.tools.layouts.logic;
+
+/**
+ * Gravity constants and placement used by the layout math. Values are bit for bit the same
+ * as {@code android.view.Gravity}, so gravity taken from attributes or layout params can be
+ * passed in without conversion.
+ */
+public final class LayoutGravity {
+    public static final int NO_GRAVITY = 0x0000;
+
+    public static final int AXIS_SPECIFIED = 0x0001;
+    public static final int AXIS_PULL_BEFORE = 0x0002;
+    public static final int AXIS_PULL_AFTER = 0x0004;
+    public static final int AXIS_CLIP = 0x0008;
+
+    public static final int AXIS_X_SHIFT = 0;
+    public static final int AXIS_Y_SHIFT = 4;
+
+    public static final int TOP = (AXIS_PULL_BEFORE | AXIS_SPECIFIED) << AXIS_Y_SHIFT;
+    public static final int BOTTOM = (AXIS_PULL_AFTER | AXIS_SPECIFIED) << AXIS_Y_SHIFT;
+    public static final int LEFT = (AXIS_PULL_BEFORE | AXIS_SPECIFIED) << AXIS_X_SHIFT;
+    public static final int RIGHT = (AXIS_PULL_AFTER | AXIS_SPECIFIED) << AXIS_X_SHIFT;
+
+    public static final int CENTER_VERTICAL = AXIS_SPECIFIED << AXIS_Y_SHIFT;
+    public static final int FILL_VERTICAL = TOP | BOTTOM;
+    public static final int CENTER_HORIZONTAL = AXIS_SPECIFIED << AXIS_X_SHIFT;
+    public static final int FILL_HORIZONTAL = LEFT | RIGHT;
+    public static final int CENTER = CENTER_VERTICAL | CENTER_HORIZONTAL;
+    public static final int FILL = FILL_VERTICAL | FILL_HORIZONTAL;
+
+    public static final int CLIP_VERTICAL = AXIS_CLIP << AXIS_Y_SHIFT;
+    public static final int CLIP_HORIZONTAL = AXIS_CLIP << AXIS_X_SHIFT;
+
+    public static final int RELATIVE_LAYOUT_DIRECTION = 0x00800000;
+    public static final int START = RELATIVE_LAYOUT_DIRECTION | LEFT;
+    public static final int END = RELATIVE_LAYOUT_DIRECTION | RIGHT;
+
+    public static final int HORIZONTAL_GRAVITY_MASK = (AXIS_SPECIFIED | AXIS_PULL_BEFORE | AXIS_PULL_AFTER) << AXIS_X_SHIFT;
+    public static final int VERTICAL_GRAVITY_MASK = (AXIS_SPECIFIED | AXIS_PULL_BEFORE | AXIS_PULL_AFTER) << AXIS_Y_SHIFT;
+
+    private LayoutGravity() {
+    }
+
+    /**
+     * Places an object of {@code w} x {@code h} inside {@code container} the same way
+     * {@code android.view.Gravity.apply(int, int, int, Rect, Rect)} does.
+     */
+    public static void apply(int gravity, int w, int h, LayoutRect container, LayoutRect outRect) {
+        switch (gravity & ((AXIS_PULL_BEFORE | AXIS_PULL_AFTER) << AXIS_X_SHIFT)) {
+            case 0:
+                outRect.left = container.left + ((container.right - container.left - w) / 2);
+                outRect.right = outRect.left + w;
+                if ((gravity & (AXIS_CLIP << AXIS_X_SHIFT)) == (AXIS_CLIP << AXIS_X_SHIFT)) {
+                    if (outRect.left < container.left) {
+                        outRect.left = container.left;
+                    }
+                    if (outRect.right > container.right) {
+                        outRect.right = container.right;
+                    }
+                }
+                break;
+            case AXIS_PULL_BEFORE << AXIS_X_SHIFT:
+                outRect.left = container.left;
+                outRect.right = outRect.left + w;
+                if ((gravity & (AXIS_CLIP << AXIS_X_SHIFT)) == (AXIS_CLIP << AXIS_X_SHIFT)) {
+                    if (outRect.right > container.right) {
+                        outRect.right = container.right;
+                    }
+                }
+                break;
+            case AXIS_PULL_AFTER << AXIS_X_SHIFT:
+                outRect.right = container.right;
+                outRect.left = outRect.right - w;
+                if ((gravity & (AXIS_CLIP << AXIS_X_SHIFT)) == (AXIS_CLIP << AXIS_X_SHIFT)) {
+                    if (outRect.left < container.left) {
+                        outRect.left = container.left;
+                    }
+                }
+                break;
+            default:
+                outRect.left = container.left;
+                outRect.right = container.right;
+                break;
+        }
+
+        switch (gravity & ((AXIS_PULL_BEFORE | AXIS_PULL_AFTER) << AXIS_Y_SHIFT)) {
+            case 0:
+                outRect.top = container.top + ((container.bottom - container.top - h) / 2);
+                outRect.bottom = outRect.top + h;
+                if ((gravity & (AXIS_CLIP << AXIS_Y_SHIFT)) == (AXIS_CLIP << AXIS_Y_SHIFT)) {
+                    if (outRect.top < container.top) {
+                        outRect.top = container.top;
+                    }
+                    if (outRect.bottom > container.bottom) {
+                        outRect.bottom = container.bottom;
+                    }
+                }
+                break;
+            case AXIS_PULL_BEFORE << AXIS_Y_SHIFT:
+                outRect.top = container.top;
+                outRect.bottom = outRect.top + h;
+                if ((gravity & (AXIS_CLIP << AXIS_Y_SHIFT)) == (AXIS_CLIP << AXIS_Y_SHIFT)) {
+                    if (outRect.bottom > container.bottom) {
+                        outRect.bottom = container.bottom;
+                    }
+                }
+                break;
+            case AXIS_PULL_AFTER << AXIS_Y_SHIFT:
+                outRect.bottom = container.bottom;
+                outRect.top = outRect.bottom - h;
+                if ((gravity & (AXIS_CLIP << AXIS_Y_SHIFT)) == (AXIS_CLIP << AXIS_Y_SHIFT)) {
+                    if (outRect.top < container.top) {
+                        outRect.top = container.top;
+                    }
+                }
+                break;
+            default:
+                outRect.top = container.top;
+                outRect.bottom = container.bottom;
+                break;
+        }
+    }
+}
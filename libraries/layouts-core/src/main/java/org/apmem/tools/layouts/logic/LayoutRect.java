@@ -0,0 +1,31 @@
+package org.apmem.tools.layouts.logic;
+
+/**
+ * Mutable rectangle used by the layout math in place of {@code android.graphics.Rect}.
+ */
+public class LayoutRect {
+    public int left;
+    public int top;
+    public int right;
+    public int bottom;
+
+    public void set(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public int width() {
+        return this.right - this.left;
+    }
+
+    public int height() {
+        return this.bottom - this.top;
+    }
+
+    @Override
+    public String toString() {
+        return "LayoutRect(" + left + ", " + top + " - " + right + ", " + bottom + ")";
+    }
+}
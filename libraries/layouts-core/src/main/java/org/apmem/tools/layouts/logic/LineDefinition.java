@@ -1,11 +1,5 @@
 package org.apmem.tools.layouts.logic;
 
-import android.graphics.Paint;
-import android.graphics.Rect;
-import android.widget.MultiAutoCompleteTextView;
-
-import org.apmem.tools.layouts.FlowLayout;
-
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,6 +17,14 @@ public class LineDefinition {
         this.lineStartLength = 0;
     }
 
+    void reset() {
+        this.views.clear();
+        this.lineLength = 0;
+        this.lineThickness = 0;
+        this.lineStartThickness = 0;
+        this.lineStartLength = 0;
+    }
+
     public void addView(ViewDefinition child) {
         this.addView(this.views.size(), child);
     }
@@ -0,0 +1,147 @@
+package org.apmem.tools.layouts.logic;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the item range and thickness of lines that were filled once, so they can be laid
+ * out again (e.g. when scrolling back) without re-flowing the items before them.
+ * <p>
+ * Lines are indexed in order starting with the first item, positions are item indexes and
+ * offsets are along the thickness axis, starting at 0 for the first line.
+ */
+public class LineIndex {
+    private int lineCount;
+    // start of every line, plus the end of the last line at lineCount
+    private int[] lineStartPosition = new int[16];
+    private int[] lineStartOffset = new int[16];
+
+    public void clear() {
+        this.lineCount = 0;
+    }
+
+    /**
+     * Appends a line of {@code itemCount} items, starting after the last indexed line.
+     */
+    public void addLine(int itemCount, int thickness) {
+        if (this.lineCount + 1 == this.lineStartPosition.length) {
+            this.lineStartPosition = Arrays.copyOf(this.lineStartPosition, this.lineStartPosition.length * 2);
+            this.lineStartOffset = Arrays.copyOf(this.lineStartOffset, this.lineStartOffset.length * 2);
+        }
+        this.lineStartPosition[this.lineCount + 1] = this.lineStartPosition[this.lineCount] + itemCount;
+        this.lineStartOffset[this.lineCount + 1] = this.lineStartOffset[this.lineCount] + thickness;
+        this.lineCount++;
+    }
+
+    /**
+     * @return item count and thickness of the first {@code lineCount} lines, in pairs, to add
+     * them again with {@link #restore(int[])}
+     */
+    public int[] save(int lineCount) {
+        final int[] lines = new int[Math.min(lineCount, this.lineCount) * 2];
+        for (int i = 0; i < lines.length / 2; i++) {
+            lines[i * 2] = getLineItemCount(i);
+            lines[i * 2 + 1] = getLineThickness(i);
+        }
+        return lines;
+    }
+
+    /**
+     * Replaces the indexed lines with ones returned by {@link #save(int)}.
+     */
+    public void restore(int[] lines) {
+        clear();
+        for (int i = 0; i + 1 < lines.length; i += 2) {
+            addLine(lines[i], lines[i + 1]);
+        }
+    }
+
+    /**
+     * Drops the lines which can change when items starting at {@code position} are inserted,
+     * removed or changed. This includes the line before the position, as items may now fit at
+     * its end.
+     */
+    public void invalidateFrom(int position) {
+        final int line = findLineByPosition(Math.max(0, position - 1));
+        if (line >= 0) {
+            this.lineCount = line;
+        }
+    }
+
+    /**
+     * @return line containing the item at {@code position}, or -1 when it is not indexed yet
+     */
+    public int findLineByPosition(int position) {
+        if (position < 0 || position >= this.lineStartPosition[this.lineCount]) {
+            return -1;
+        }
+        // last line starting at or before the position
+        int low = 0;
+        int high = this.lineCount - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (this.lineStartPosition[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public int getLineCount() {
+        return this.lineCount;
+    }
+
+    /**
+     * @return first position of the line, or the indexed item count for {@code line == getLineCount()}
+     */
+    public int getLineStartPosition(int line) {
+        return this.lineStartPosition[line];
+    }
+
+    public int getLineItemCount(int line) {
+        return this.lineStartPosition[line + 1] - this.lineStartPosition[line];
+    }
+
+    /**
+     * @return offset of the line, or the indexed thickness for {@code line == getLineCount()}
+     */
+    public int getLineStartOffset(int line) {
+        return this.lineStartOffset[line];
+    }
+
+    public int getLineThickness(int line) {
+        return this.lineStartOffset[line + 1] - this.lineStartOffset[line];
+    }
+
+    /**
+     * @return number of items in the indexed lines, i.e. the first position that is not indexed yet
+     */
+    public int getIndexedItemCount() {
+        return this.lineStartPosition[this.lineCount];
+    }
+
+    public int getIndexedThickness() {
+        return this.lineStartOffset[this.lineCount];
+    }
+
+    /**
+     * Estimates the thickness of all lines for {@code itemCount} items. Lines which are not
+     * indexed yet are assumed to hold as many items and be as thick as the indexed lines on
+     * average, so the estimate improves as more lines are indexed.
+     *
+     * @param maxLines line limit, or 0 when there is none
+     */
+    public int estimateThickness(int itemCount, int maxLines) {
+        final int indexedItemCount = getIndexedItemCount();
+        final int indexedThickness = getIndexedThickness();
+        if (this.lineCount == 0 || indexedItemCount >= itemCount) {
+            return indexedThickness;
+        }
+        long remainingLines = ((long) (itemCount - indexedItemCount) * this.lineCount + indexedItemCount - 1) / indexedItemCount;
+        if (maxLines > 0) {
+            remainingLines = Math.min(remainingLines, Math.max(0, maxLines - this.lineCount));
+        }
+        return (int) Math.min(Integer.MAX_VALUE, indexedThickness + remainingLines * indexedThickness / this.lineCount);
+    }
+}
@@ -0,0 +1,407 @@
+package org.apmem.tools.layouts.logic;
+
+import java.util.Arrays;
+
+/**
+ * Alternative to the {@link ViewDefinition} / {@link LineDefinition} model used by {@link CommonLogic}.
+ * <p>
+ * Every child is stored in parallel primitive arrays indexed by the order it was added in, and the
+ * orientation is resolved once per pass in {@link #begin(int)}, so the per child work is plain array
+ * reads and writes. It produces the same positions and sizes as
+ * {@link CommonLogic#fillLines}, {@link CommonLogic#calculateLinesAndChildPosition} and
+ * {@link CommonLogic#applyGravityToLines}. Arrays only grow, so repeated passes over the same
+ * children do not allocate.
+ */
+public class PackedLayoutEngine {
+    private final ConfigDefinition config;
+
+    private boolean horizontal;
+    private boolean rtl;
+    private int lineGravity;
+
+    // per child, indexed by child index
+    private int childCount;
+    private Object[] views = new Object[0];
+    private int[] length = new int[0];
+    private int[] thickness = new int[0];
+    private int[] spacingLength = new int[0];
+    private int[] spacingThickness = new int[0];
+    private int[] leadingMarginX = new int[0];
+    private int[] leadingMarginY = new int[0];
+    private int[] gravity = new int[0];
+    private float[] weight = new float[0];
+    private boolean[] newLine = new boolean[0];
+    private int[] inlineStartLength = new int[0];
+    private int[] inlineStartThickness = new int[0];
+    private int[] childLine = new int[0];
+
+    // child indexes in display order, every line is a contiguous range of it
+    private int[] order = new int[0];
+    private int placedCount;
+
+    // per line, in display order
+    private int lineCount;
+    private int[] lineStart = new int[0];
+    private int[] lineChildCount = new int[0];
+    private int[] lineLength = new int[0];
+    private int[] lineThickness = new int[0];
+    private int[] lineStartLength = new int[0];
+    private int[] lineStartThickness = new int[0];
+
+    public PackedLayoutEngine(ConfigDefinition config) {
+        this.config = config;
+    }
+
+    /**
+     * Starts a new pass for up to {@code capacity} children.
+     */
+    public void begin(int capacity) {
+        this.horizontal = this.config.getOrientation() == CommonLogic.HORIZONTAL;
+        this.rtl = this.config.getLayoutDirection() == CommonLogic.LAYOUT_DIRECTION_RTL;
+        this.lineGravity = CommonLogic.resolveGravity(LayoutGravity.NO_GRAVITY, this.config);
+        this.childCount = 0;
+        this.placedCount = 0;
+        this.lineCount = 0;
+        if (capacity > this.length.length) {
+            growChildren(capacity);
+        }
+    }
+
+    /**
+     * Adds a measured child and returns its index.
+     */
+    public int addChild(Object view, int width, int height, int leftMargin, int topMargin, int rightMargin,
+                        int bottomMargin, int childGravity, float childWeight, boolean childNewLine) {
+        return addResolvedChild(view, width, height, leftMargin, topMargin, rightMargin, bottomMargin,
+                CommonLogic.resolveGravity(childGravity, this.config),
+                CommonLogic.resolveWeight(childWeight, this.config), childNewLine);
+    }
+
+    /**
+     * Same as {@link #addChild} for gravity and weight already resolved with
+     * {@link CommonLogic#resolveGravity} and {@link CommonLogic#resolveWeight}.
+     */
+    public int addResolvedChild(Object view, int width, int height, int leftMargin, int topMargin, int rightMargin,
+                                int bottomMargin, int resolvedGravity, float resolvedWeight, boolean childNewLine) {
+        final int i = this.childCount;
+        if (i == this.length.length) {
+            growChildren(Math.max(8, i * 2));
+        }
+        this.views[i] = view;
+        if (this.horizontal) {
+            this.length[i] = width;
+            this.thickness[i] = height;
+            this.spacingLength[i] = leftMargin + rightMargin;
+            this.spacingThickness[i] = topMargin + bottomMargin;
+        } else {
+            this.length[i] = height;
+            this.thickness[i] = width;
+            this.spacingLength[i] = topMargin + bottomMargin;
+            this.spacingThickness[i] = leftMargin + rightMargin;
+        }
+        this.leadingMarginX[i] = leftMargin;
+        this.leadingMarginY[i] = topMargin;
+        this.gravity[i] = resolvedGravity;
+        this.weight[i] = resolvedWeight;
+        this.newLine[i] = childNewLine;
+        this.inlineStartLength[i] = 0;
+        this.inlineStartThickness[i] = 0;
+        this.childLine[i] = -1;
+        this.childCount++;
+        return i;
+    }
+
+    /**
+     * Drops references to views of the last pass, so removed children are not kept alive.
+     */
+    public void releaseViews() {
+        for (int i = this.childCount; i < this.views.length && this.views[i] != null; i++) {
+            this.views[i] = null;
+        }
+    }
+
+    /**
+     * Breaks children into lines, same rules as {@link CommonLogic#fillLines}.
+     * Lines are built in child order and RTL order is applied once at the end.
+     */
+    public void fillLines() {
+        final int maxLength = this.config.getMaxLength();
+        final int maxLines = this.config.getMaxLines();
+        final boolean checkCanFit = this.config.isCheckCanFit();
+
+        startLine(0);
+        int currentLength = 0;
+        for (int i = 0; i < this.childCount; i++) {
+            final int childLength = this.length[i] + this.spacingLength[i];
+            boolean startNewLine = this.newLine[i] || (checkCanFit && currentLength + childLength > maxLength);
+
+            if (startNewLine && maxLines > 0 && this.lineCount == maxLines) {
+                break;
+            }
+
+            if (startNewLine) {
+                startLine(this.placedCount);
+                currentLength = 0;
+            }
+
+            final int line = this.lineCount - 1;
+            this.order[this.placedCount++] = i;
+            this.lineChildCount[line]++;
+            currentLength += childLength;
+            this.lineLength[line] = currentLength;
+            this.lineThickness[line] = Math.max(this.lineThickness[line], this.thickness[i] + this.spacingThickness[i]);
+        }
+
+        if (this.horizontal && this.rtl) {
+            for (int line = 0; line < this.lineCount; line++) {
+                reverse(this.order, this.lineStart[line], this.lineChildCount[line]);
+            }
+        } else if (!this.horizontal && this.rtl) {
+            reverseLines();
+        }
+
+        for (int line = 0; line < this.lineCount; line++) {
+            final int end = this.lineStart[line] + this.lineChildCount[line];
+            for (int k = this.lineStart[line]; k < end; k++) {
+                this.childLine[this.order[k]] = line;
+            }
+        }
+    }
+
+    /**
+     * Same as {@link CommonLogic#calculateLinesAndChildPosition}.
+     */
+    public void calculatePositions() {
+        int prevLinesThickness = 0;
+        for (int line = 0; line < this.lineCount; line++) {
+            this.lineStartThickness[line] = prevLinesThickness;
+            prevLinesThickness += this.lineThickness[line];
+            int prevChildLength = 0;
+            final int end = this.lineStart[line] + this.lineChildCount[line];
+            for (int k = this.lineStart[line]; k < end; k++) {
+                final int i = this.order[k];
+                this.inlineStartLength[i] = prevChildLength;
+                prevChildLength += this.length[i] + this.spacingLength[i];
+            }
+        }
+    }
+
+    public int getContentLength() {
+        int contentLength = 0;
+        for (int line = 0; line < this.lineCount; line++) {
+            contentLength = Math.max(contentLength, this.lineLength[line]);
+        }
+        return contentLength;
+    }
+
+    public int getContentThickness() {
+        final int last = this.lineCount - 1;
+        return this.lineStartThickness[last] + this.lineThickness[last];
+    }
+
+    /**
+     * Same as {@link CommonLogic#applyGravityToLines}.
+     */
+    public void applyGravity(int realControlLength, int realControlThickness) {
+        if (this.lineCount <= 0) {
+            return;
+        }
+        final LayoutRect container = this.config.getGravityContainer();
+        final LayoutRect result = this.config.getGravityResult();
+
+        int remainingWeight = this.lineCount;
+        final int last = this.lineCount - 1;
+        int excessThickness = realControlThickness - (this.lineThickness[last] + this.lineStartThickness[last]);
+        if (excessThickness < 0) {
+            excessThickness = 0;
+        }
+
+        int excessOffset = 0;
+        for (int line = 0; line < this.lineCount; line++) {
+            int weight = 1;
+            int extraThickness = Math.round(excessThickness * weight / remainingWeight);
+            excessThickness -= extraThickness;
+            remainingWeight -= weight;
+
+            final int currentThickness = this.lineThickness[line];
+            container.set(0, excessOffset, realControlLength, currentThickness + extraThickness + excessOffset);
+            LayoutGravity.apply(this.lineGravity, this.lineLength[line], currentThickness, container, result);
+
+            excessOffset += extraThickness;
+            this.lineStartLength[line] += result.left;
+            this.lineStartThickness[line] += result.top;
+            this.lineLength[line] = result.width();
+            this.lineThickness[line] = result.height();
+
+            applyGravityToLine(line, container, result);
+        }
+    }
+
+    private void applyGravityToLine(int line, LayoutRect container, LayoutRect result) {
+        final int start = this.lineStart[line];
+        final int count = this.lineChildCount[line];
+        if (count <= 0) {
+            return;
+        }
+        final int end = start + count;
+
+        float remainingWeight = 0;
+        for (int k = start; k < end; k++) {
+            remainingWeight += this.weight[this.order[k]];
+        }
+        final boolean weightBased = remainingWeight > 0;
+
+        final int lastChild = this.order[end - 1];
+        int excessLengthRemaining = this.lineLength[line] - (this.length[lastChild] + this.spacingLength[lastChild] + this.inlineStartLength[lastChild]);
+        int excessOffset = 0;
+        for (int k = start; k < end; k++) {
+            final int i = this.order[k];
+            final float childWeight = this.weight[i];
+            int extraLength;
+            if (!weightBased) {
+                extraLength = excessLengthRemaining / (end - k);
+            } else {
+                extraLength = Math.round(excessLengthRemaining * childWeight / remainingWeight);
+                remainingWeight -= childWeight;
+            }
+            excessLengthRemaining -= extraLength;
+
+            final int childLength = this.length[i] + this.spacingLength[i];
+            final int childThickness = this.thickness[i] + this.spacingThickness[i];
+
+            container.set(excessOffset, 0, childLength + extraLength + excessOffset, this.lineThickness[line]);
+            LayoutGravity.apply(this.gravity[i], childLength, childThickness, container, result);
+
+            excessOffset += extraLength;
+            this.inlineStartLength[i] += result.left;
+            this.inlineStartThickness[i] = result.top;
+            this.length[i] = result.width() - this.spacingLength[i];
+            this.thickness[i] = result.height() - this.spacingThickness[i];
+        }
+    }
+
+    public int getChildCount() {
+        return this.childCount;
+    }
+
+    public Object getView(int child) {
+        return this.views[child];
+    }
+
+    /**
+     * @return false for children cut off by {@link ConfigDefinition#getMaxLines()}
+     */
+    public boolean isPlaced(int child) {
+        return this.childLine[child] >= 0;
+    }
+
+    public int getLineCount() {
+        return this.lineCount;
+    }
+
+    public int getLineOf(int child) {
+        return this.childLine[child];
+    }
+
+    public int getLineChildCount(int line) {
+        return this.lineChildCount[line];
+    }
+
+    /**
+     * @return index of the child at {@code position} on the line, in display order
+     */
+    public int getLineChild(int line, int position) {
+        return this.order[this.lineStart[line] + position];
+    }
+
+    /**
+     * @return left of the child including its left margin, relative to the content area
+     */
+    public int getLeft(int child) {
+        final int line = this.childLine[child];
+        final int x = this.horizontal
+                ? this.lineStartLength[line] + this.inlineStartLength[child]
+                : this.lineStartThickness[line] + this.inlineStartThickness[child];
+        return x + this.leadingMarginX[child];
+    }
+
+    /**
+     * @return top of the child including its top margin, relative to the content area
+     */
+    public int getTop(int child) {
+        final int line = this.childLine[child];
+        final int y = this.horizontal
+                ? this.lineStartThickness[line] + this.inlineStartThickness[child]
+                : this.lineStartLength[line] + this.inlineStartLength[child];
+        return y + this.leadingMarginY[child];
+    }
+
+    public int getWidth(int child) {
+        return this.horizontal ? this.length[child] : this.thickness[child];
+    }
+
+    public int getHeight(int child) {
+        return this.horizontal ? this.thickness[child] : this.length[child];
+    }
+
+    private void startLine(int start) {
+        if (this.lineCount == this.lineStart.length) {
+            growLines(Math.max(4, this.lineCount * 2));
+        }
+        final int line = this.lineCount++;
+        this.lineStart[line] = start;
+        this.lineChildCount[line] = 0;
+        this.lineLength[line] = 0;
+        this.lineThickness[line] = 0;
+        this.lineStartLength[line] = 0;
+        this.lineStartThickness[line] = 0;
+    }
+
+    private void reverseLines() {
+        // reverse the order of the children as a whole, then restore the order inside every line
+        reverse(this.order, 0, this.placedCount);
+        reverse(this.lineChildCount, 0, this.lineCount);
+        reverse(this.lineLength, 0, this.lineCount);
+        reverse(this.lineThickness, 0, this.lineCount);
+        int start = 0;
+        for (int line = 0; line < this.lineCount; line++) {
+            this.lineStart[line] = start;
+            reverse(this.order, start, this.lineChildCount[line]);
+            start += this.lineChildCount[line];
+        }
+    }
+
+    private static void reverse(int[] array, int start, int count) {
+        for (int i = start, j = start + count - 1; i < j; i++, j--) {
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    private void growChildren(int capacity) {
+        this.views = Arrays.copyOf(this.views, capacity);
+        this.length = Arrays.copyOf(this.length, capacity);
+        this.thickness = Arrays.copyOf(this.thickness, capacity);
+        this.spacingLength = Arrays.copyOf(this.spacingLength, capacity);
+        this.spacingThickness = Arrays.copyOf(this.spacingThickness, capacity);
+        this.leadingMarginX = Arrays.copyOf(this.leadingMarginX, capacity);
+        this.leadingMarginY = Arrays.copyOf(this.leadingMarginY, capacity);
+        this.gravity = Arrays.copyOf(this.gravity, capacity);
+        this.weight = Arrays.copyOf(this.weight, capacity);
+        this.newLine = Arrays.copyOf(this.newLine, capacity);
+        this.inlineStartLength = Arrays.copyOf(this.inlineStartLength, capacity);
+        this.inlineStartThickness = Arrays.copyOf(this.inlineStartThickness, capacity);
+        this.childLine = Arrays.copyOf(this.childLine, capacity);
+        this.order = Arrays.copyOf(this.order, capacity);
+    }
+
+    private void growLines(int capacity) {
+        this.lineStart = Arrays.copyOf(this.lineStart, capacity);
+        this.lineChildCount = Arrays.copyOf(this.lineChildCount, capacity);
+        this.lineLength = Arrays.copyOf(this.lineLength, capacity);
+        this.lineThickness = Arrays.copyOf(this.lineThickness, capacity);
+        this.lineStartLength = Arrays.copyOf(this.lineStartLength, capacity);
+        this.lineStartThickness = Arrays.copyOf(this.lineStartThickness, capacity);
+    }
+}
@@ -0,0 +1,180 @@
+package org.apmem.tools.layouts.logic;
+
+import java.util.List;
+
+/**
+ * Sorted offsets of laid out lines and of the views inside them, to answer position queries
+ * with a binary search instead of walking all views.
+ * <p>
+ * Views are identified by their index in the list given to {@link CommonLogic#fillLines}.
+ * Coordinates are relative to the content area, i.e. without the control's padding.
+ */
+public class PositionIndex {
+    private boolean horizontal;
+    private boolean reversedLines;
+    private boolean reversedViews;
+
+    private int lineCount;
+    private int[] lineStart = new int[0];
+    private int[] lineEnd = new int[0];
+    // first slot of every line, plus the total slot count at the end
+    private int[] lineFirstSlot = new int[1];
+
+    // slots hold the views in the order they are displayed, along the length of their line
+    private int slotCount;
+    private int[] slotStart = new int[0];
+    private int[] slotEnd = new int[0];
+    private int[] slotThicknessStart = new int[0];
+    private int[] slotThicknessEnd = new int[0];
+    private int[] slotView = new int[0];
+
+    /**
+     * Rebuilds the index from lines which have their final positions, i.e. after
+     * {@link CommonLogic#applyGravityToLines}.
+     */
+    public void build(List<LineDefinition> lines, ConfigDefinition config) {
+        this.horizontal = config.getOrientation() == CommonLogic.HORIZONTAL;
+        final boolean rtl = config.getLayoutDirection() == CommonLogic.LAYOUT_DIRECTION_RTL;
+        this.reversedLines = rtl && !this.horizontal;
+        this.reversedViews = rtl && this.horizontal;
+
+        final int linesCount = lines.size();
+        int viewCount = 0;
+        for (int i = 0; i < linesCount; i++) {
+            viewCount += lines.get(i).getViews().size();
+        }
+        if (this.lineStart.length < linesCount) {
+            this.lineStart = new int[linesCount];
+            this.lineEnd = new int[linesCount];
+            this.lineFirstSlot = new int[linesCount + 1];
+        }
+        if (this.slotStart.length < viewCount) {
+            this.slotStart = new int[viewCount];
+            this.slotEnd = new int[viewCount];
+            this.slotThicknessStart = new int[viewCount];
+            this.slotThicknessEnd = new int[viewCount];
+            this.slotView = new int[viewCount];
+        }
+        this.lineCount = linesCount;
+        this.slotCount = viewCount;
+
+        int slot = 0;
+        for (int i = 0; i < linesCount; i++) {
+            final LineDefinition line = lines.get(i);
+            this.lineStart[i] = line.getLineStartThickness();
+            this.lineEnd[i] = line.getLineStartThickness() + line.getLineThickness();
+            this.lineFirstSlot[i] = slot;
+            final List<ViewDefinition> views = line.getViews();
+            final int count = views.size();
+            for (int j = 0; j < count; j++) {
+                final ViewDefinition child = views.get(j);
+                this.slotStart[slot] = line.getLineStartLength() + child.getInlineStartLength();
+                this.slotEnd[slot] = this.slotStart[slot] + child.getLength() + child.getSpacingLength();
+                this.slotThicknessStart[slot] = line.getLineStartThickness() + child.getInlineStartThickness();
+                this.slotThicknessEnd[slot] = this.slotThicknessStart[slot] + child.getThickness() + child.getSpacingThickness();
+                slot++;
+            }
+        }
+        this.lineFirstSlot[linesCount] = slot;
+
+        // views were consumed in order by fillLines, walk the lines the same way to number them
+        int view = 0;
+        for (int k = 0; k < linesCount; k++) {
+            final int line = this.reversedLines ? linesCount - 1 - k : k;
+            final int first = this.lineFirstSlot[line];
+            final int end = this.lineFirstSlot[line + 1];
+            for (int s = first; s < end; s++) {
+                this.slotView[this.reversedViews ? end - 1 - (s - first) : s] = view++;
+            }
+        }
+    }
+
+    /**
+     * @return number of views that were placed on a line
+     */
+    public int getViewCount() {
+        return this.slotCount;
+    }
+
+    /**
+     * @return index of the view which covers the point (including its margins), or -1
+     */
+    public int findView(int x, int y) {
+        final int length = this.horizontal ? x : y;
+        final int thickness = this.horizontal ? y : x;
+        final int line = findLine(thickness);
+        if (line < 0 || thickness >= this.lineEnd[line]) {
+            return -1;
+        }
+        final int first = this.lineFirstSlot[line];
+        final int slot = lastAtOrBefore(this.slotStart, first, this.lineFirstSlot[line + 1], length);
+        if (slot < first || length >= this.slotEnd[slot]
+                || thickness < this.slotThicknessStart[slot] || thickness >= this.slotThicknessEnd[slot]) {
+            return -1;
+        }
+        return this.slotView[slot];
+    }
+
+    /**
+     * @return index at which a view dropped at the point should be inserted, between 0 and
+     * {@link #getViewCount()}. Points before the first or after the last line are treated as
+     * being on that line.
+     */
+    public int findInsertionIndex(int x, int y) {
+        if (this.slotCount == 0) {
+            return 0;
+        }
+        final int length = this.horizontal ? x : y;
+        final int thickness = this.horizontal ? y : x;
+        int line = Math.max(findLine(thickness), 0);
+        // skip lines without views, e.g. the one left before a view which forces a new line
+        while (line < this.lineCount - 1 && this.lineFirstSlot[line] == this.lineFirstSlot[line + 1]) {
+            line++;
+        }
+        while (this.lineFirstSlot[line] == this.lineFirstSlot[line + 1]) {
+            line--;
+        }
+        final int first = this.lineFirstSlot[line];
+        final int end = this.lineFirstSlot[line + 1];
+
+        // first slot whose middle is past the point
+        int low = first;
+        int high = end;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if ((this.slotStart[mid] + this.slotEnd[mid]) / 2 <= length) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        if (this.reversedViews) {
+            // slots are displayed last view first, the point goes after the view on its right
+            return low > first ? this.slotView[low - 1] : this.slotView[first] + 1;
+        }
+        return low < end ? this.slotView[low] : this.slotView[end - 1] + 1;
+    }
+
+    private int findLine(int thickness) {
+        return lastAtOrBefore(this.lineStart, 0, this.lineCount, thickness);
+    }
+
+    /**
+     * @return last index in [from, to) whose value is not greater than {@code key}, or
+     * {@code from - 1} when there is none
+     */
+    private static int lastAtOrBefore(int[] values, int from, int to, int key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (values[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+}
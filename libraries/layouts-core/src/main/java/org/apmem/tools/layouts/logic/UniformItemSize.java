@@ -0,0 +1,74 @@
+package org.apmem.tools.layouts.logic;
+
+/**
+ * Size of one measured item, used for all items of a flow whose items measure the same.
+ * Every line then holds the same number of items and has the same thickness, so lines are
+ * computed from the item count instead of measuring the items of each line.
+ * <p>
+ * Items starting a new line are not supported, lines only end when the next item does not fit.
+ */
+public class UniformItemSize {
+    private final ViewDefinition item;
+    private boolean measured;
+    private int leftMargin;
+    private int topMargin;
+    private int rightMargin;
+    private int bottomMargin;
+
+    public UniformItemSize(ConfigDefinition config) {
+        this.item = new ViewDefinition(config, null);
+    }
+
+    public void clear() {
+        this.measured = false;
+    }
+
+    public void set(int width, int height, int leftMargin, int topMargin, int rightMargin, int bottomMargin) {
+        this.item.setWidth(width);
+        this.item.setHeight(height);
+        this.item.setMargins(leftMargin, topMargin, rightMargin, bottomMargin);
+        this.leftMargin = leftMargin;
+        this.topMargin = topMargin;
+        this.rightMargin = rightMargin;
+        this.bottomMargin = bottomMargin;
+        this.measured = true;
+    }
+
+    public boolean isMeasured() {
+        return measured;
+    }
+
+    /**
+     * Copies the size and margins of the measured item to {@code view}.
+     */
+    public void apply(ViewDefinition view) {
+        view.setWidth(this.item.getWidth());
+        view.setHeight(this.item.getHeight());
+        view.setMargins(this.leftMargin, this.topMargin, this.rightMargin, this.bottomMargin);
+        view.setNewLine(false);
+    }
+
+    public int getWidth() {
+        return this.item.getWidth();
+    }
+
+    public int getHeight() {
+        return this.item.getHeight();
+    }
+
+    /**
+     * @return how many items fit in a line of the maximum length, at least one as a line always
+     * takes its first item
+     */
+    public int getItemsPerLine(int maxLength) {
+        final int itemLength = this.item.getLength() + this.item.getSpacingLength();
+        if (itemLength <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(1, maxLength / itemLength);
+    }
+
+    public int getLineThickness() {
+        return this.item.getThickness() + this.item.getSpacingThickness();
+    }
+}
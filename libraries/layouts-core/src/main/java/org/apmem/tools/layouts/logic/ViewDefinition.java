@@ -1,11 +1,8 @@
 package org.apmem.tools.layouts.logic;
 
-import android.view.Gravity;
-import android.view.View;
-
 public class ViewDefinition {
     private final ConfigDefinition config;
-    private final View view;
+    private Object view;
     private int inlineStartLength;
     private float weight;
     private int gravity;
@@ -17,12 +14,28 @@ public class ViewDefinition {
     private int topMargin;
     private int rightMargin;
     private int bottomMargin;
+    private boolean resolved;
+    private int resolvedGravity;
+    private float resolvedWeight;
 
-    public ViewDefinition(ConfigDefinition config, View child) {
+    public ViewDefinition(ConfigDefinition config, Object child) {
         this.config = config;
         this.view = child;
     }
 
+    void reset(Object child) {
+        this.view = child;
+        this.inlineStartLength = 0;
+        this.inlineStartThickness = 0;
+        this.weight = 0;
+        this.gravity = LayoutGravity.NO_GRAVITY;
+        this.newLine = false;
+        this.width = 0;
+        this.height = 0;
+        this.setMargins(0, 0, 0, 0);
+        this.resolved = false;
+    }
+
     public int getLength() {
         return this.config.getOrientation() == CommonLogic.HORIZONTAL ? width : height;
     }
@@ -76,7 +89,7 @@ public class ViewDefinition {
     }
 
     public boolean gravitySpecified() {
-        return gravity != Gravity.NO_GRAVITY;
+        return gravity != LayoutGravity.NO_GRAVITY;
     }
 
     public int getGravity() {
@@ -87,6 +100,28 @@ public class ViewDefinition {
         this.gravity = gravity;
     }
 
+    /**
+     * Sets gravity and weight already resolved with {@link CommonLogic#resolveGravity} and
+     * {@link CommonLogic#resolveWeight}, so the layout does not resolve them again.
+     */
+    public void setResolved(int resolvedGravity, float resolvedWeight) {
+        this.resolved = true;
+        this.resolvedGravity = resolvedGravity;
+        this.resolvedWeight = resolvedWeight;
+    }
+
+    public boolean isResolved() {
+        return resolved;
+    }
+
+    public int getResolvedGravity() {
+        return resolvedGravity;
+    }
+
+    public float getResolvedWeight() {
+        return resolvedWeight;
+    }
+
     public boolean isNewLine() {
         return newLine;
     }
@@ -95,7 +130,7 @@ public class ViewDefinition {
         this.newLine = newLine;
     }
 
-    public View getView() {
+    public Object getView() {
         return view;
     }
 
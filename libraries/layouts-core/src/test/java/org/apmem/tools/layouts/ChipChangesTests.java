@@ -0,0 +1,78 @@
+package org.apmem.tools.layouts;
+
+import junit.framework.Assert;
+
+import org.apmem.tools.layouts.logic.ChipChanges;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ChipChangesTests {
+
+    @Test
+    public void SameChips_Empty() {
+        final List<String> chips = Arrays.asList("a", "b", "c");
+
+        final ChipChanges<String> changes = ChipChanges.compute(chips, chips, chips, chips);
+
+        Assert.assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void AddedAndRemoved_Positions() {
+        final List<String> oldChips = Arrays.asList("a", "b", "c");
+        final List<String> newChips = Arrays.asList("x", "a", "c", "y");
+
+        final ChipChanges<String> changes = ChipChanges.compute(oldChips, oldChips, newChips, newChips);
+
+        Assert.assertEquals(2, changes.getAdded().size());
+        Assert.assertEquals("x", changes.getAdded().get(0).getChip());
+        Assert.assertEquals(0, changes.getAdded().get(0).getToPosition());
+        Assert.assertEquals(-1, changes.getAdded().get(0).getFromPosition());
+        Assert.assertEquals("y", changes.getAdded().get(1).getChip());
+        Assert.assertEquals(3, changes.getAdded().get(1).getToPosition());
+        Assert.assertEquals(1, changes.getRemoved().size());
+        Assert.assertEquals("b", changes.getRemoved().get(0).getChip());
+        Assert.assertEquals(1, changes.getRemoved().get(0).getFromPosition());
+        Assert.assertTrue(changes.getMoved().isEmpty());
+    }
+
+    @Test
+    public void ChipDraggedToStart_OnlyItMoved() {
+        final List<String> oldChips = Arrays.asList("a", "b", "c", "d");
+        final List<String> newChips = Arrays.asList("d", "a", "b", "c");
+
+        final ChipChanges<String> changes = ChipChanges.compute(oldChips, oldChips, newChips, newChips);
+
+        Assert.assertTrue(changes.getAdded().isEmpty());
+        Assert.assertTrue(changes.getRemoved().isEmpty());
+        Assert.assertEquals(1, changes.getMoved().size());
+        Assert.assertEquals("d", changes.getMoved().get(0).getChip());
+        Assert.assertEquals(3, changes.getMoved().get(0).getFromPosition());
+        Assert.assertEquals(0, changes.getMoved().get(0).getToPosition());
+    }
+
+    @Test
+    public void Reversed_AllButOneMoved() {
+        final List<String> oldChips = Arrays.asList("a", "b", "c", "d");
+        final List<String> newChips = Arrays.asList("d", "c", "b", "a");
+
+        final ChipChanges<String> changes = ChipChanges.compute(oldChips, oldChips, newChips, newChips);
+
+        Assert.assertEquals(3, changes.getMoved().size());
+    }
+
+    @Test
+    public void ChipOfViewReplaced_RemovedAndAdded() {
+        final List<String> views = Arrays.asList("view");
+
+        final ChipChanges<String> changes = ChipChanges.compute(views, Collections.singletonList(new String("a")),
+                views, Collections.singletonList(new String("a")));
+
+        Assert.assertEquals(1, changes.getAdded().size());
+        Assert.assertEquals(1, changes.getRemoved().size());
+        Assert.assertTrue(changes.getMoved().isEmpty());
+    }
+}
@@ -0,0 +1,129 @@
+package org.apmem.tools.layouts;
+
+import junit.framework.Assert;
+
+import org.apmem.tools.layouts.logic.ChipStore;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ChipStoreTests {
+
+    @Test
+    public void Put_KeepsOrderOfAdding() {
+        final ChipStore<String, String> store = createStore("c", "a", "b");
+
+        Assert.assertEquals(3, store.size());
+        Assert.assertEquals(Arrays.asList("c:1", "a:1", "b:1"), store.getChips());
+        Assert.assertEquals(Arrays.asList("c", "a", "b"), store.getViews());
+        Assert.assertEquals("a:1", store.get("a"));
+        Assert.assertEquals("b", store.getViewAt(2));
+    }
+
+    @Test
+    public void Put_AddedView_ReplacesChipInPlace() {
+        final ChipStore<String, String> store = createStore("a", "b", "c");
+
+        store.put("b", "b:2");
+
+        Assert.assertEquals(Arrays.asList("a:1", "b:2", "c:1"), store.getChips());
+        Assert.assertEquals("b", store.findById("b:2"));
+        Assert.assertNull(store.findById("b:1"));
+    }
+
+    @Test
+    public void Add_AtPosition() {
+        final ChipStore<String, String> store = createStore("a", "b", "c");
+
+        store.add(0, "d", "d:1");
+        store.add(2, "e", "e:1");
+        store.add(10, "f", "f:1");
+
+        Assert.assertEquals(Arrays.asList("d", "a", "e", "b", "c", "f"), store.getViews());
+    }
+
+    @Test
+    public void Add_AddedView_MovesIt() {
+        final ChipStore<String, String> store = createStore("a", "b", "c", "d");
+
+        store.add(3, "a", "a:1");
+        store.add(0, "c", "c:1");
+
+        Assert.assertEquals(Arrays.asList("c", "b", "d", "a"), store.getViews());
+        Assert.assertEquals(4, store.size());
+    }
+
+    @Test
+    public void Remove_DropsFromAllIndexes() {
+        final ChipStore<String, String> store = createStore("a", "b", "c");
+
+        Assert.assertEquals("b:1", store.remove("b"));
+        Assert.assertNull(store.remove("b"));
+
+        Assert.assertEquals(Arrays.asList("a:1", "c:1"), store.getChips());
+        Assert.assertFalse(store.contains("b"));
+        Assert.assertNull(store.findById("b:1"));
+    }
+
+    @Test
+    public void FindById_SameId_FirstAddedUntilRemoved() {
+        final ChipStore<String, String> store = createStore("a");
+        store.put("b", "a:1");
+        store.put("c", "a:1");
+
+        Assert.assertEquals("a", store.findById("a:1"));
+        store.remove("a");
+        Assert.assertEquals("b", store.findById("a:1"));
+        store.remove("c");
+        Assert.assertEquals("b", store.findById("a:1"));
+        store.remove("b");
+        Assert.assertNull(store.findById("a:1"));
+    }
+
+    @Test
+    public void FindById_NullId_NotIndexed() {
+        final ChipStore<String, String> store = createStore("a");
+        store.put("b", null);
+
+        Assert.assertNull(store.findById(null));
+        Assert.assertEquals(2, store.size());
+    }
+
+    @Test
+    public void GetChips_SameListUntilChanged() {
+        final ChipStore<String, String> store = createStore("a", "b");
+
+        final List<String> chips = store.getChips();
+        Assert.assertSame(chips, store.getChips());
+
+        store.remove("a");
+        Assert.assertNotSame(chips, store.getChips());
+        Assert.assertEquals(Arrays.asList("a:1", "b:1"), chips);
+    }
+
+    @Test
+    public void Clear_RemovesAll() {
+        final ChipStore<String, String> store = createStore("a", "b");
+
+        store.clear();
+
+        Assert.assertEquals(0, store.size());
+        Assert.assertTrue(store.getChips().isEmpty());
+        Assert.assertNull(store.findById("a:1"));
+    }
+
+    private static ChipStore<String, String> createStore(String... views) {
+        // chips are "<view>:<version>" and are their own id
+        final ChipStore<String, String> store = new ChipStore<>(new ChipStore.IdProvider<String>() {
+            @Override
+            public Object getId(String chip) {
+                return chip;
+            }
+        });
+        for (String view : views) {
+            store.put(view, view + ":1");
+        }
+        return store;
+    }
+}
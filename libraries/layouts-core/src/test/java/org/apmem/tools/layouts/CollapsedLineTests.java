@@ -0,0 +1,86 @@
+package org.apmem.tools.layouts;
+
+import junit.framework.Assert;
+
+import org.apmem.tools.layouts.logic.CollapsedLine;
+import org.junit.Test;
+
+public class CollapsedLineTests {
+
+    @Test
+    public void AllFit_AllVisible() {
+        final TestChildren children = new TestChildren(30, 30, 30);
+
+        Assert.assertEquals(3, CollapsedLine.countVisible(children, 100, 20));
+    }
+
+    @Test
+    public void NotAllFit_RoomMadeForSummary() {
+        final TestChildren children = new TestChildren(30, 30, 30, 30, 30);
+
+        // 3 children fit, the third one makes room for the summary
+        Assert.assertEquals(2, CollapsedLine.countVisible(children, 100, 20));
+    }
+
+    @Test
+    public void NotAllFit_SummaryFitsNextToLine() {
+        final TestChildren children = new TestChildren(30, 30, 30, 30);
+
+        Assert.assertEquals(3, CollapsedLine.countVisible(children, 100, 10));
+    }
+
+    @Test
+    public void NotAllFit_OnlyChildrenUpToFirstLineEndLookedAt() {
+        final TestChildren children = new TestChildren(30, 30, 30, 30, 30, 30, 30, 30);
+
+        CollapsedLine.countVisible(children, 100, 10);
+
+        Assert.assertEquals(4, children.lookedAt);
+    }
+
+    @Test
+    public void FirstChildLongerThanLine_StaysVisible() {
+        final TestChildren children = new TestChildren(150, 30);
+
+        Assert.assertEquals(1, CollapsedLine.countVisible(children, 100, 20));
+    }
+
+    @Test
+    public void NewLine_EndsFirstLine() {
+        final TestChildren children = new TestChildren(30, 30, 30);
+        children.newLine = 1;
+
+        Assert.assertEquals(1, CollapsedLine.countVisible(children, 100, 20));
+    }
+
+    @Test
+    public void NoChildren_NoneVisible() {
+        Assert.assertEquals(0, CollapsedLine.countVisible(new TestChildren(), 100, 20));
+    }
+
+    private static class TestChildren implements CollapsedLine.Children {
+        private final int[] lengths;
+        int newLine = -1;
+        int lookedAt;
+
+        TestChildren(int... lengths) {
+            this.lengths = lengths;
+        }
+
+        @Override
+        public int getCount() {
+            return lengths.length;
+        }
+
+        @Override
+        public int getLength(int index) {
+            lookedAt = Math.max(lookedAt, index + 1);
+            return lengths[index];
+        }
+
+        @Override
+        public boolean isNewLine(int index) {
+            return index == newLine;
+        }
+    }
+}
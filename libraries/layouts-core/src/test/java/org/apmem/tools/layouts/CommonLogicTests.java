@@ -0,0 +1,380 @@
+package org.apmem.tools.layouts;
+
+import junit.framework.Assert;
+import org.apmem.tools.layouts.logic.CommonLogic;
+import org.apmem.tools.layouts.logic.ConfigDefinition;
+import org.apmem.tools.layouts.logic.DefinitionPool;
+import org.apmem.tools.layouts.logic.LayoutGravity;
+import org.apmem.tools.layouts.logic.LineDefinition;
+import org.apmem.tools.layouts.logic.ViewDefinition;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Random;
+
+public class CommonLogicTests {
+    @Test
+    public void MaxLinesNotSetAllLinesAddedWhenNotSet() {
+        ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(20);
+        ArrayList<LineDefinition> lines = new ArrayList<>();
+        ArrayList<ViewDefinition> views = new ArrayList<>();
+        for(int i = 0; i < 9; i++){
+            ViewDefinition view = new ViewDefinition(config, null);
+            view.setWidth(10);
+            view.setHeight(10);
+            views.add(view);
+        }
+
+        CommonLogic.fillLines(views, lines, config);
+
+        Assert.assertEquals(5, lines.size());
+        Assert.assertEquals(2, lines.get(0).getViews().size());
+        Assert.assertEquals(2, lines.get(1).getViews().size());
+        Assert.assertEquals(2, lines.get(2).getViews().size());
+        Assert.assertEquals(2, lines.get(3).getViews().size());
+        Assert.assertEquals(1, lines.get(4).getViews().size());
+    }
+
+    @Test
+    public void MaxLinesSetLinesCountEqualToMaxLines() {
+        ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(20);
+        config.setMaxLines(2);
+        ArrayList<LineDefinition> lines = new ArrayList<>();
+        ArrayList<ViewDefinition> views = new ArrayList<>();
+        for(int i = 0; i < 9; i++){
+            ViewDefinition view = new ViewDefinition(config, null);
+            view.setWidth(10);
+            view.setHeight(10);
+            views.add(view);
+        }
+
+        CommonLogic.fillLines(views, lines, config);
+
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals(2, lines.get(0).getViews().size());
+        Assert.assertEquals(2, lines.get(1).getViews().size());
+    }
+
+    @Test
+    public void GravityApplyUseAllAvailableSpaceHorizontally() {
+        ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(30);
+        config.setMaxHeight(20);
+        config.setGravity(LayoutGravity.FILL);
+        ArrayList<LineDefinition> lines = new ArrayList<>();
+        ArrayList<ViewDefinition> views = new ArrayList<>();
+        for(int i = 0; i < 4; i++){
+            ViewDefinition view = new ViewDefinition(config, null);
+            view.setWidth(10);
+            view.setHeight(10);
+            views.add(view);
+        }
+
+        CommonLogic.fillLines(views, lines, config);
+        CommonLogic.calculateLinesAndChildPosition(lines);
+        CommonLogic.applyGravityToLines(lines, 30, 20, config);
+
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals(10, lines.get(0).getViews().get(0).getWidth());
+        Assert.assertEquals(10, lines.get(0).getViews().get(1).getWidth());
+        Assert.assertEquals(10, lines.get(0).getViews().get(2).getWidth());
+    }
+
+    @Test
+    public void GravityApplyUseAllAvailableSpaceHorizontallyWithLastPixel() {
+        ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(31);
+        config.setMaxHeight(20);
+        config.setGravity(LayoutGravity.FILL);
+        ArrayList<LineDefinition> lines = new ArrayList<>();
+        ArrayList<ViewDefinition> views = new ArrayList<>();
+        for(int i = 0; i < 4; i++){
+            ViewDefinition view = new ViewDefinition(config, null);
+            view.setWidth(10);
+            view.setHeight(10);
+            views.add(view);
+        }
+
+        CommonLogic.fillLines(views, lines, config);
+        CommonLogic.calculateLinesAndChildPosition(lines);
+        CommonLogic.applyGravityToLines(lines, 31, 20, config);
+
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals(10, lines.get(0).getViews().get(0).getWidth());
+        Assert.assertEquals(10, lines.get(0).getViews().get(1).getWidth());
+        Assert.assertEquals(11, lines.get(0).getViews().get(2).getWidth());
+    }
+
+    @Test
+    public void GravityApplyUseAllAvailableSpaceVertically() {
+        ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(30);
+        config.setMaxHeight(20);
+        config.setGravity(LayoutGravity.FILL);
+        ArrayList<LineDefinition> lines = new ArrayList<>();
+        ArrayList<ViewDefinition> views = new ArrayList<>();
+        for(int i = 0; i < 4; i++){
+            ViewDefinition view = new ViewDefinition(config, null);
+            view.setWidth(10);
+            view.setHeight(10);
+            views.add(view);
+        }
+
+        CommonLogic.fillLines(views, lines, config);
+        CommonLogic.calculateLinesAndChildPosition(lines);
+        CommonLogic.applyGravityToLines(lines, 30, 20, config);
+
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals(10, lines.get(0).getViews().get(0).getHeight());
+        Assert.assertEquals(10, lines.get(1).getViews().get(0).getHeight());
+    }
+
+    @Test
+    public void GravityApplyUseAllAvailableSpaceVerticallyWithLastPixel() {
+        ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(30);
+        config.setMaxHeight(21);
+        config.setGravity(LayoutGravity.FILL);
+        ArrayList<LineDefinition> lines = new ArrayList<>();
+        ArrayList<ViewDefinition> views = new ArrayList<>();
+        for(int i = 0; i < 4; i++){
+            ViewDefinition view = new ViewDefinition(config, null);
+            view.setWidth(10);
+            view.setHeight(10);
+            views.add(view);
+        }
+
+        CommonLogic.fillLines(views, lines, config);
+        CommonLogic.calculateLinesAndChildPosition(lines);
+        CommonLogic.applyGravityToLines(lines, 30, 21, config);
+
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals(10, lines.get(0).getViews().get(0).getHeight());
+        Assert.assertEquals(11, lines.get(1).getViews().get(0).getHeight());
+    }
+
+    @Test
+    public void MeasurePassDoesNotAllocateInSteadyState() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        // allocation counters are a HotSpot extension
+        Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled());
+
+        ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(100);
+        config.setMaxHeight(100);
+        config.setWidthMode(CommonLogic.MODE_EXACTLY);
+        config.setHeightMode(CommonLogic.MODE_AT_MOST);
+        config.setGravity(LayoutGravity.CENTER);
+        DefinitionPool pool = new DefinitionPool(config);
+        ArrayList<LineDefinition> lines = new ArrayList<>();
+        ArrayList<ViewDefinition> views = new ArrayList<>();
+
+        long threadId = Thread.currentThread().getId();
+        final int passes = 1000;
+        for(int i = 0; i < passes; i++){
+            measurePass(views, lines, config, pool);
+        }
+
+        long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+        for(int i = 0; i < passes; i++){
+            measurePass(views, lines, config, pool);
+        }
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        // a single Rect per pass would already be more than 16 bytes per pass
+        Assert.assertTrue("measure pass allocated " + allocated + " bytes", allocated < passes * 16);
+    }
+
+    /**
+     * Builds the lines of 50 children the way FlowLayout.onMeasure does, with pooled definitions.
+     */
+    private static int measurePass(ArrayList<ViewDefinition> views, ArrayList<LineDefinition> lines, ConfigDefinition config, DefinitionPool pool) {
+        pool.recycleAll();
+        views.clear();
+        lines.clear();
+        for(int i = 0; i < 50; i++){
+            ViewDefinition view = pool.obtainView(null);
+            view.setWidth(10 + i % 3 * 5);
+            view.setHeight(10 + i % 2 * 5);
+            view.setGravity(i % 4 == 0 ? LayoutGravity.BOTTOM : LayoutGravity.NO_GRAVITY);
+            view.setWeight(i % 5 == 0 ? 1.0f : -1.0f);
+            views.add(view);
+        }
+
+        CommonLogic.fillLines(views, lines, config, pool);
+        CommonLogic.calculateLinesAndChildPosition(lines);
+        int contentLength = 0;
+        for(int i = 0; i < lines.size(); i++){
+            contentLength = Math.max(contentLength, lines.get(i).getLineLength());
+        }
+        LineDefinition lastLine = lines.get(lines.size() - 1);
+        int contentThickness = lastLine.getLineStartThickness() + lastLine.getLineThickness();
+        int realControlLength = CommonLogic.findSize(config.getLengthMode(), config.getMaxLength(), contentLength);
+        int realControlThickness = CommonLogic.findSize(config.getThicknessMode(), config.getMaxThickness(), contentThickness);
+        CommonLogic.applyGravityToLines(lines, realControlLength, realControlThickness, config);
+        pool.releaseUnused();
+        return realControlThickness;
+    }
+
+    @Test
+    public void FillLinesFromViewKeepsPreviousLines() {
+        ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(20);
+        ArrayList<LineDefinition> lines = new ArrayList<>();
+        ArrayList<ViewDefinition> views = new ArrayList<>();
+        for(int i = 0; i < 7; i++){
+            ViewDefinition view = new ViewDefinition(config, null);
+            view.setWidth(10);
+            view.setHeight(10 + i);
+            views.add(view);
+        }
+
+        CommonLogic.fillLines(views, lines, config);
+        CommonLogic.calculateLinesAndChildPosition(lines);
+        LineDefinition keptLine = lines.get(1);
+
+        // re-flow from the last line only, after two more views were appended
+        lines.remove(3);
+        for(int i = 0; i < 2; i++){
+            ViewDefinition view = new ViewDefinition(config, null);
+            view.setWidth(10);
+            view.setHeight(10);
+            views.add(view);
+        }
+        CommonLogic.fillLines(views, 6, lines, config, null);
+        CommonLogic.calculateLinesAndChildPosition(lines, 3);
+
+        Assert.assertEquals(5, lines.size());
+        Assert.assertSame(keptLine, lines.get(1));
+        Assert.assertEquals(2, lines.get(3).getViews().size());
+        Assert.assertEquals(1, lines.get(4).getViews().size());
+        Assert.assertEquals(11 + 13 + 15, lines.get(3).getLineStartThickness());
+        Assert.assertEquals(11 + 13 + 15 + 16, lines.get(4).getLineStartThickness());
+    }
+
+    @Test
+    public void RtlFillLinesMatchesFrontInsertion() {
+        Random random = new Random(7);
+        for (int orientation : new int[]{CommonLogic.HORIZONTAL, CommonLogic.VERTICAL}) {
+            for (int round = 0; round < 200; round++) {
+                ConfigDefinition config = new ConfigDefinition();
+                config.setOrientation(orientation);
+                config.setLayoutDirection(CommonLogic.LAYOUT_DIRECTION_RTL);
+                config.setMaxWidth(100);
+                config.setMaxHeight(100);
+                config.setMaxLines(random.nextInt(4));
+                ArrayList<ViewDefinition> views = new ArrayList<>();
+                int count = random.nextInt(60);
+                for (int i = 0; i < count; i++) {
+                    ViewDefinition view = new ViewDefinition(config, null);
+                    view.setWidth(5 + random.nextInt(40));
+                    view.setHeight(5 + random.nextInt(40));
+                    view.setNewLine(random.nextInt(10) == 0);
+                    views.add(view);
+                }
+                int fromView = count > 0 ? random.nextInt(count) : 0;
+
+                ArrayList<LineDefinition> expected = new ArrayList<>();
+                fillLinesByFrontInsertion(views, 0, expected, config);
+                ArrayList<LineDefinition> actual = new ArrayList<>();
+                CommonLogic.fillLines(views, actual, config);
+                assertSameLines(expected, actual);
+
+                // continue after a kept prefix, as an incremental pass does
+                fillLinesByFrontInsertion(views, fromView, expected, config);
+                CommonLogic.fillLines(views, fromView, actual, config, null);
+                assertSameLines(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void ResolvedGravityAndWeightGiveSameLayout() {
+        Random random = new Random(3);
+        int[] gravities = {LayoutGravity.NO_GRAVITY, LayoutGravity.CENTER, LayoutGravity.START | LayoutGravity.BOTTOM, LayoutGravity.FILL_HORIZONTAL};
+        for (int orientation : new int[]{CommonLogic.HORIZONTAL, CommonLogic.VERTICAL}) {
+            for (int direction : new int[]{CommonLogic.LAYOUT_DIRECTION_LTR, CommonLogic.LAYOUT_DIRECTION_RTL}) {
+                ConfigDefinition config = new ConfigDefinition();
+                config.setOrientation(orientation);
+                config.setLayoutDirection(direction);
+                config.setGravity(LayoutGravity.FILL);
+                config.setWeightDefault(1.0f);
+                config.setMaxWidth(100);
+                config.setMaxHeight(100);
+                ArrayList<ViewDefinition> plain = new ArrayList<>();
+                ArrayList<ViewDefinition> resolved = new ArrayList<>();
+                for (int i = 0; i < 30; i++) {
+                    int width = 5 + random.nextInt(30);
+                    int height = 5 + random.nextInt(30);
+                    int gravity = gravities[random.nextInt(gravities.length)];
+                    float weight = random.nextBoolean() ? -1.0f : random.nextInt(3);
+                    plain.add(createView(config, width, height, gravity, weight));
+                    ViewDefinition view = createView(config, width, height, gravity, weight);
+                    view.setResolved(CommonLogic.resolveGravity(gravity, config), CommonLogic.resolveWeight(weight, config));
+                    resolved.add(view);
+                }
+
+                ArrayList<LineDefinition> plainLines = new ArrayList<>();
+                CommonLogic.fillLines(plain, plainLines, config);
+                CommonLogic.calculateLinesAndChildPosition(plainLines);
+                CommonLogic.applyGravityToLines(plainLines, 100, 300, config);
+                ArrayList<LineDefinition> resolvedLines = new ArrayList<>();
+                CommonLogic.fillLines(resolved, resolvedLines, config);
+                CommonLogic.calculateLinesAndChildPosition(resolvedLines);
+                CommonLogic.applyGravityToLines(resolvedLines, 100, 300, config);
+
+                for (int i = 0; i < plain.size(); i++) {
+                    Assert.assertEquals(plain.get(i).getInlineX(), resolved.get(i).getInlineX());
+                    Assert.assertEquals(plain.get(i).getInlineY(), resolved.get(i).getInlineY());
+                    Assert.assertEquals(plain.get(i).getWidth(), resolved.get(i).getWidth());
+                    Assert.assertEquals(plain.get(i).getHeight(), resolved.get(i).getHeight());
+                }
+            }
+        }
+    }
+
+    private static ViewDefinition createView(ConfigDefinition config, int width, int height, int gravity, float weight) {
+        ViewDefinition view = new ViewDefinition(config, null);
+        view.setWidth(width);
+        view.setHeight(height);
+        view.setGravity(gravity);
+        view.setWeight(weight);
+        return view;
+    }
+
+    private static void assertSameLines(ArrayList<LineDefinition> expected, ArrayList<LineDefinition> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).getViews(), actual.get(i).getViews());
+            Assert.assertEquals(expected.get(i).getLineLength(), actual.get(i).getLineLength());
+            Assert.assertEquals(expected.get(i).getLineThickness(), actual.get(i).getLineThickness());
+        }
+    }
+
+    /**
+     * The original RTL implementation, which inserts every view and line at the front.
+     */
+    private static void fillLinesByFrontInsertion(ArrayList<ViewDefinition> views, int fromView, ArrayList<LineDefinition> lines, ConfigDefinition config) {
+        boolean vertical = config.getOrientation() == CommonLogic.VERTICAL;
+        LineDefinition currentLine = new LineDefinition(config);
+        lines.add(vertical ? 0 : lines.size(), currentLine);
+        for (int i = fromView; i < views.size(); i++) {
+            ViewDefinition child = views.get(i);
+            boolean newLine = child.isNewLine() || (config.isCheckCanFit() && !currentLine.canFit(child));
+            if (newLine && config.getMaxLines() > 0 && lines.size() == config.getMaxLines())
+                break;
+            if (newLine) {
+                currentLine = new LineDefinition(config);
+                lines.add(vertical ? 0 : lines.size(), currentLine);
+            }
+            currentLine.addView(vertical ? currentLine.getViews().size() : 0, child);
+        }
+    }
+}
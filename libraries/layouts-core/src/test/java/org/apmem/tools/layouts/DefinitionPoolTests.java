@@ -0,0 +1,74 @@
+package org.apmem.tools.layouts;
+
+import junit.framework.Assert;
+import org.apmem.tools.layouts.logic.CommonLogic;
+import org.apmem.tools.layouts.logic.ConfigDefinition;
+import org.apmem.tools.layouts.logic.DefinitionPool;
+import org.apmem.tools.layouts.logic.LineDefinition;
+import org.apmem.tools.layouts.logic.ViewDefinition;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+public class DefinitionPoolTests {
+    @Test
+    public void ObtainView_ReusesDefinitionsAcrossPasses() {
+        DefinitionPool pool = new DefinitionPool(new ConfigDefinition());
+
+        ViewDefinition first = pool.obtainView(null);
+        ViewDefinition second = pool.obtainView(null);
+        pool.recycleAll();
+
+        Assert.assertSame(first, pool.obtainView(null));
+        Assert.assertSame(second, pool.obtainView(null));
+        Assert.assertEquals(2, pool.getPooledViewCount());
+    }
+
+    @Test
+    public void FillLines_ReusesLinesAcrossPasses() {
+        ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(20);
+        DefinitionPool pool = new DefinitionPool(config);
+        ArrayList<LineDefinition> lines = new ArrayList<>();
+        ArrayList<ViewDefinition> views = new ArrayList<>();
+
+        for (int pass = 0; pass < 3; pass++) {
+            pool.recycleAll();
+            views.clear();
+            lines.clear();
+            for (int i = 0; i < 9; i++) {
+                ViewDefinition view = pool.obtainView(null);
+                view.setWidth(10);
+                view.setHeight(10);
+                views.add(view);
+            }
+            CommonLogic.fillLines(views, lines, config, pool);
+            pool.releaseUnused();
+
+            Assert.assertEquals(5, lines.size());
+            Assert.assertEquals(2, lines.get(0).getViews().size());
+            Assert.assertEquals(20, lines.get(0).getLineLength());
+            Assert.assertEquals(1, lines.get(4).getViews().size());
+        }
+
+        Assert.assertEquals(9, pool.getPooledViewCount());
+        Assert.assertEquals(5, pool.getPooledLineCount());
+    }
+
+    @Test
+    public void ReleaseUnused_DropsReferencesToViewsNotUsedAnyMore() {
+        DefinitionPool pool = new DefinitionPool(new ConfigDefinition());
+        Object kept = new Object();
+        Object removed = new Object();
+
+        pool.obtainView(kept);
+        ViewDefinition stale = pool.obtainView(removed);
+        pool.releaseUnused();
+
+        pool.recycleAll();
+        pool.obtainView(kept);
+        pool.releaseUnused();
+
+        Assert.assertNull(stale.getView());
+    }
+}
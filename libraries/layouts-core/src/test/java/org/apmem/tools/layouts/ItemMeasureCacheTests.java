@@ -0,0 +1,132 @@
+package org.apmem.tools.layouts;
+
+import junit.framework.Assert;
+
+import org.apmem.tools.layouts.logic.ConfigDefinition;
+import org.apmem.tools.layouts.logic.ItemMeasureCache;
+import org.apmem.tools.layouts.logic.LineDefinition;
+import org.apmem.tools.layouts.logic.ViewDefinition;
+import org.junit.Test;
+
+public class ItemMeasureCacheTests {
+
+    @Test
+    public void Put_AppliesSizeAndMargins() {
+        final ConfigDefinition config = new ConfigDefinition();
+        final ItemMeasureCache cache = new ItemMeasureCache(config);
+        cache.put(3, 10, 20, 1, 2, 3, 4, true);
+
+        Assert.assertFalse(cache.isMeasured(0));
+        Assert.assertFalse(cache.isMeasured(2));
+        Assert.assertTrue(cache.isMeasured(3));
+        Assert.assertFalse(cache.isMeasured(4));
+
+        final ViewDefinition view = new ViewDefinition(config, null);
+        cache.apply(3, view);
+        Assert.assertEquals(10, view.getWidth());
+        Assert.assertEquals(20, view.getHeight());
+        Assert.assertEquals(4, view.getSpacingLength());
+        Assert.assertEquals(6, view.getSpacingThickness());
+        Assert.assertTrue(view.isNewLine());
+    }
+
+    @Test
+    public void ItemsAdded_ShiftsFollowingSizes() {
+        final ItemMeasureCache cache = createCache(5);
+
+        cache.onItemsAdded(2, 3);
+
+        assertWidths(cache, 0, 1, -1, -1, -1, 2, 3, 4);
+    }
+
+    @Test
+    public void ItemsRemoved_ShiftsFollowingSizes() {
+        final ItemMeasureCache cache = createCache(5);
+
+        cache.onItemsRemoved(1, 2);
+
+        assertWidths(cache, 0, 3, 4);
+        Assert.assertFalse(cache.isMeasured(3));
+    }
+
+    @Test
+    public void ItemsChanged_DropsTheirSizes() {
+        final ItemMeasureCache cache = createCache(5);
+
+        cache.onItemsChanged(1, 2);
+
+        assertWidths(cache, 0, -1, -1, 3, 4);
+    }
+
+    @Test
+    public void ItemsMoved_Forward() {
+        final ItemMeasureCache cache = createCache(5);
+
+        cache.onItemsMoved(1, 3, 1);
+
+        assertWidths(cache, 0, 2, 3, 1, 4);
+    }
+
+    @Test
+    public void ItemsMoved_Backward() {
+        final ItemMeasureCache cache = createCache(5);
+
+        cache.onItemsMoved(4, 0, 1);
+
+        assertWidths(cache, 4, 0, 1, 2, 3);
+    }
+
+    @Test
+    public void ItemsMoved_BeyondMeasured_KeepsPositionsBefore() {
+        final ItemMeasureCache cache = createCache(5);
+
+        cache.onItemsMoved(2, 7, 1);
+
+        assertWidths(cache, 0, 1);
+        Assert.assertFalse(cache.isMeasured(2));
+    }
+
+    @Test
+    public void StartsNewLine_UsesCachedLength() {
+        final ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(100);
+        final ItemMeasureCache cache = new ItemMeasureCache(config);
+        cache.put(0, 60, 10, 0, 0, 0, 0, false);
+        cache.put(1, 40, 10, 0, 0, 0, 0, false);
+        cache.put(2, 41, 10, 0, 0, 0, 0, false);
+        cache.put(3, 10, 10, 0, 0, 0, 0, true);
+
+        final LineDefinition line = new LineDefinition(config);
+        final ViewDefinition first = new ViewDefinition(config, null);
+        cache.apply(0, first);
+        line.addView(first);
+
+        Assert.assertFalse(cache.startsNewLine(1, line));
+        Assert.assertTrue(cache.startsNewLine(2, line));
+        Assert.assertTrue(cache.startsNewLine(3, line));
+    }
+
+    private static ItemMeasureCache createCache(int count) {
+        final ItemMeasureCache cache = new ItemMeasureCache(new ConfigDefinition());
+        for (int i = 0; i < count; i++) {
+            cache.put(i, i, 1, 0, 0, 0, 0, false);
+        }
+        return cache;
+    }
+
+    /**
+     * @param widths expected width by position, -1 for a position that is not measured
+     */
+    private static void assertWidths(ItemMeasureCache cache, int... widths) {
+        final ViewDefinition view = new ViewDefinition(new ConfigDefinition(), null);
+        for (int i = 0; i < widths.length; i++) {
+            if (widths[i] < 0) {
+                Assert.assertFalse("position " + i, cache.isMeasured(i));
+            } else {
+                Assert.assertTrue("position " + i, cache.isMeasured(i));
+                cache.apply(i, view);
+                Assert.assertEquals("position " + i, widths[i], view.getWidth());
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.apmem.tools.layouts;
+
+import junit.framework.Assert;
+import org.apmem.tools.layouts.logic.LayoutGravity;
+import org.apmem.tools.layouts.logic.LayoutRect;
+import org.junit.Test;
+
+public class LayoutGravityTests {
+    @Test
+    public void TopLeftPullsToContainerStart() {
+        LayoutRect result = apply(LayoutGravity.LEFT | LayoutGravity.TOP, 10, 20);
+        assertRect(result, 5, 7, 15, 27);
+    }
+
+    @Test
+    public void BottomRightPullsToContainerEnd() {
+        LayoutRect result = apply(LayoutGravity.RIGHT | LayoutGravity.BOTTOM, 10, 20);
+        assertRect(result, 95, 87, 105, 107);
+    }
+
+    @Test
+    public void CenterRoundsTowardsStart() {
+        LayoutRect result = apply(LayoutGravity.CENTER, 11, 21);
+        assertRect(result, 49, 46, 60, 67);
+    }
+
+    @Test
+    public void FillTakesWholeContainer() {
+        LayoutRect result = apply(LayoutGravity.FILL, 10, 20);
+        assertRect(result, 5, 7, 105, 107);
+    }
+
+    @Test
+    public void ClipKeepsResultInsideContainer() {
+        LayoutRect result = apply(LayoutGravity.CENTER | LayoutGravity.CLIP_HORIZONTAL | LayoutGravity.CLIP_VERTICAL, 200, 300);
+        assertRect(result, 5, 7, 105, 107);
+    }
+
+    @Test
+    public void ConstantsMatchAndroidValues() {
+        Assert.assertEquals(0x30, LayoutGravity.TOP);
+        Assert.assertEquals(0x50, LayoutGravity.BOTTOM);
+        Assert.assertEquals(0x03, LayoutGravity.LEFT);
+        Assert.assertEquals(0x05, LayoutGravity.RIGHT);
+        Assert.assertEquals(0x11, LayoutGravity.CENTER);
+        Assert.assertEquals(0x77, LayoutGravity.FILL);
+        Assert.assertEquals(0x00800003, LayoutGravity.START);
+        Assert.assertEquals(0x00800005, LayoutGravity.END);
+    }
+
+    private static LayoutRect apply(int gravity, int width, int height) {
+        LayoutRect container = new LayoutRect();
+        container.set(5, 7, 105, 107);
+        LayoutRect result = new LayoutRect();
+        LayoutGravity.apply(gravity, width, height, container, result);
+        return result;
+    }
+
+    private static void assertRect(LayoutRect rect, int left, int top, int right, int bottom) {
+        Assert.assertEquals(left, rect.left);
+        Assert.assertEquals(top, rect.top);
+        Assert.assertEquals(right, rect.right);
+        Assert.assertEquals(bottom, rect.bottom);
+    }
+}
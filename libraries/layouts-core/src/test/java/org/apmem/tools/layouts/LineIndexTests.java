@@ -0,0 +1,206 @@
+package org.apmem.tools.layouts;
+
+import junit.framework.Assert;
+
+import org.apmem.tools.layouts.logic.LineIndex;
+import org.junit.Test;
+
+public class LineIndexTests {
+
+    @Test
+    public void Empty_NothingIndexed() {
+        final LineIndex index = new LineIndex();
+
+        Assert.assertEquals(0, index.getLineCount());
+        Assert.assertEquals(0, index.getIndexedItemCount());
+        Assert.assertEquals(0, index.getIndexedThickness());
+    }
+
+    @Test
+    public void AddLine_RangesAndOffsetsAccumulate() {
+        final LineIndex index = new LineIndex();
+        index.addLine(3, 50);
+        index.addLine(2, 40);
+
+        Assert.assertEquals(2, index.getLineCount());
+        Assert.assertEquals(0, index.getLineStartPosition(0));
+        Assert.assertEquals(3, index.getLineItemCount(0));
+        Assert.assertEquals(3, index.getLineStartPosition(1));
+        Assert.assertEquals(2, index.getLineItemCount(1));
+        Assert.assertEquals(50, index.getLineStartOffset(1));
+        Assert.assertEquals(40, index.getLineThickness(1));
+        Assert.assertEquals(5, index.getIndexedItemCount());
+        Assert.assertEquals(90, index.getIndexedThickness());
+        Assert.assertEquals(5, index.getLineStartPosition(2));
+        Assert.assertEquals(90, index.getLineStartOffset(2));
+    }
+
+    @Test
+    public void AddLine_GrowsBeyondInitialCapacity() {
+        final LineIndex index = new LineIndex();
+        for (int i = 0; i < 1000; i++) {
+            index.addLine(2, 10);
+        }
+
+        Assert.assertEquals(1000, index.getLineCount());
+        Assert.assertEquals(1998, index.getLineStartPosition(999));
+        Assert.assertEquals(9990, index.getLineStartOffset(999));
+        Assert.assertEquals(2000, index.getIndexedItemCount());
+    }
+
+    @Test
+    public void Clear_StartsOver() {
+        final LineIndex index = new LineIndex();
+        index.addLine(3, 50);
+        index.clear();
+        index.addLine(1, 20);
+
+        Assert.assertEquals(1, index.getLineCount());
+        Assert.assertEquals(1, index.getIndexedItemCount());
+        Assert.assertEquals(20, index.getIndexedThickness());
+    }
+
+    @Test
+    public void FindLineByPosition_ReturnsContainingLine() {
+        final LineIndex index = new LineIndex();
+        index.addLine(3, 50);
+        index.addLine(1, 40);
+        index.addLine(4, 30);
+
+        Assert.assertEquals(0, index.findLineByPosition(0));
+        Assert.assertEquals(0, index.findLineByPosition(2));
+        Assert.assertEquals(1, index.findLineByPosition(3));
+        Assert.assertEquals(2, index.findLineByPosition(4));
+        Assert.assertEquals(2, index.findLineByPosition(7));
+        Assert.assertEquals(-1, index.findLineByPosition(8));
+        Assert.assertEquals(-1, index.findLineByPosition(-1));
+    }
+
+    @Test
+    public void FindLineByPosition_ManyLines() {
+        final LineIndex index = new LineIndex();
+        for (int i = 0; i < 1000; i++) {
+            index.addLine(1 + i % 3, 10);
+        }
+
+        int position = 0;
+        for (int line = 0; line < 1000; line++) {
+            for (int j = 0; j < 1 + line % 3; j++) {
+                Assert.assertEquals(line, index.findLineByPosition(position++));
+            }
+        }
+    }
+
+    @Test
+    public void InvalidateFrom_InsideLine_DropsItAndFollowing() {
+        final LineIndex index = new LineIndex();
+        index.addLine(3, 50);
+        index.addLine(3, 40);
+        index.addLine(3, 30);
+
+        index.invalidateFrom(5);
+
+        Assert.assertEquals(1, index.getLineCount());
+        Assert.assertEquals(3, index.getIndexedItemCount());
+        Assert.assertEquals(50, index.getIndexedThickness());
+    }
+
+    @Test
+    public void InvalidateFrom_LineStart_DropsPreviousLine() {
+        final LineIndex index = new LineIndex();
+        index.addLine(3, 50);
+        index.addLine(3, 40);
+        index.addLine(3, 30);
+
+        index.invalidateFrom(6);
+
+        Assert.assertEquals(1, index.getLineCount());
+    }
+
+    @Test
+    public void InvalidateFrom_AfterIndexedItems_DropsLastLineOnly() {
+        final LineIndex index = new LineIndex();
+        index.addLine(3, 50);
+        index.addLine(3, 40);
+
+        index.invalidateFrom(6);
+        Assert.assertEquals(1, index.getLineCount());
+
+        index.invalidateFrom(10);
+        Assert.assertEquals(1, index.getLineCount());
+    }
+
+    @Test
+    public void InvalidateFrom_Start_DropsAll() {
+        final LineIndex index = new LineIndex();
+        index.addLine(3, 50);
+
+        index.invalidateFrom(0);
+
+        Assert.assertEquals(0, index.getLineCount());
+    }
+
+    @Test
+    public void EstimateThickness_NoLines_Zero() {
+        final LineIndex index = new LineIndex();
+
+        Assert.assertEquals(0, index.estimateThickness(100, 0));
+    }
+
+    @Test
+    public void EstimateThickness_AllIndexed_IndexedThickness() {
+        final LineIndex index = new LineIndex();
+        index.addLine(3, 50);
+        index.addLine(2, 40);
+
+        Assert.assertEquals(90, index.estimateThickness(5, 0));
+    }
+
+    @Test
+    public void EstimateThickness_RemainingLinesFromAverages() {
+        final LineIndex index = new LineIndex();
+        index.addLine(3, 50);
+        index.addLine(5, 30);
+
+        // 4 items per line and 40 thick on average, 12 items left need 3 more lines
+        Assert.assertEquals(200, index.estimateThickness(20, 0));
+        // a started line counts as a whole one
+        Assert.assertEquals(200, index.estimateThickness(17, 0));
+    }
+
+    @Test
+    public void EstimateThickness_MaxLines_Limited() {
+        final LineIndex index = new LineIndex();
+        index.addLine(4, 50);
+        index.addLine(4, 30);
+
+        Assert.assertEquals(120, index.estimateThickness(100, 3));
+        Assert.assertEquals(80, index.estimateThickness(100, 2));
+    }
+
+    @Test
+    public void SaveRestore_SameLines() {
+        final LineIndex index = new LineIndex();
+        index.addLine(3, 50);
+        index.addLine(2, 40);
+        index.addLine(4, 30);
+
+        final LineIndex restored = new LineIndex();
+        restored.addLine(1, 10);
+        restored.restore(index.save(2));
+
+        Assert.assertEquals(2, restored.getLineCount());
+        Assert.assertEquals(5, restored.getIndexedItemCount());
+        Assert.assertEquals(90, restored.getIndexedThickness());
+        Assert.assertEquals(3, restored.getLineStartPosition(1));
+        Assert.assertEquals(50, restored.getLineStartOffset(1));
+    }
+
+    @Test
+    public void Save_MoreLinesThanIndexed_IndexedOnly() {
+        final LineIndex index = new LineIndex();
+        index.addLine(3, 50);
+
+        Assert.assertEquals(2, index.save(10).length);
+    }
+}
@@ -0,0 +1,121 @@
+package org.apmem.tools.layouts;
+
+import junit.framework.Assert;
+import org.apmem.tools.layouts.logic.CommonLogic;
+import org.apmem.tools.layouts.logic.ConfigDefinition;
+import org.apmem.tools.layouts.logic.LayoutGravity;
+import org.apmem.tools.layouts.logic.LineDefinition;
+import org.apmem.tools.layouts.logic.PackedLayoutEngine;
+import org.apmem.tools.layouts.logic.ViewDefinition;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class PackedLayoutEngineTests {
+    @Test
+    public void HorizontalLtrMatchesCommonLogic() {
+        assertSameAsCommonLogic(CommonLogic.HORIZONTAL, CommonLogic.LAYOUT_DIRECTION_LTR, LayoutGravity.CENTER_VERTICAL, 0, 0.0f);
+    }
+
+    @Test
+    public void HorizontalRtlMatchesCommonLogic() {
+        assertSameAsCommonLogic(CommonLogic.HORIZONTAL, CommonLogic.LAYOUT_DIRECTION_RTL, LayoutGravity.START | LayoutGravity.TOP, 0, 0.0f);
+    }
+
+    @Test
+    public void VerticalRtlMatchesCommonLogic() {
+        assertSameAsCommonLogic(CommonLogic.VERTICAL, CommonLogic.LAYOUT_DIRECTION_RTL, LayoutGravity.FILL, 0, 0.0f);
+    }
+
+    @Test
+    public void MaxLinesAndWeightsMatchCommonLogic() {
+        assertSameAsCommonLogic(CommonLogic.HORIZONTAL, CommonLogic.LAYOUT_DIRECTION_LTR, LayoutGravity.FILL, 3, 1.0f);
+    }
+
+    @Test
+    public void ChildrenAfterMaxLinesAreNotPlaced() {
+        ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(20);
+        config.setMaxLines(2);
+        PackedLayoutEngine engine = new PackedLayoutEngine(config);
+        engine.begin(9);
+        for (int i = 0; i < 9; i++) {
+            engine.addChild(null, 10, 10, 0, 0, 0, 0, LayoutGravity.NO_GRAVITY, -1.0f, false);
+        }
+
+        engine.fillLines();
+
+        Assert.assertEquals(2, engine.getLineCount());
+        Assert.assertTrue(engine.isPlaced(3));
+        Assert.assertFalse(engine.isPlaced(4));
+    }
+
+    private void assertSameAsCommonLogic(int orientation, int layoutDirection, int gravity, int maxLines, float weightDefault) {
+        ConfigDefinition config = new ConfigDefinition();
+        config.setOrientation(orientation);
+        config.setLayoutDirection(layoutDirection);
+        config.setGravity(gravity);
+        config.setMaxLines(maxLines);
+        config.setWeightDefault(weightDefault);
+        config.setMaxWidth(200);
+        config.setMaxHeight(300);
+
+        Random random = new Random(42);
+        ArrayList<ViewDefinition> views = new ArrayList<>();
+        ArrayList<LineDefinition> lines = new ArrayList<>();
+        PackedLayoutEngine engine = new PackedLayoutEngine(config);
+        engine.begin(0);
+        final int count = 30;
+        int[] leftMargins = new int[count];
+        int[] topMargins = new int[count];
+        for (int i = 0; i < count; i++) {
+            int width = 10 + random.nextInt(60);
+            int height = 10 + random.nextInt(30);
+            leftMargins[i] = random.nextInt(4);
+            topMargins[i] = random.nextInt(4);
+            boolean newLine = i % 11 == 10;
+
+            ViewDefinition view = new ViewDefinition(config, null);
+            view.setWidth(width);
+            view.setHeight(height);
+            view.setMargins(leftMargins[i], topMargins[i], 1, 2);
+            view.setNewLine(newLine);
+            view.setGravity(LayoutGravity.NO_GRAVITY);
+            view.setWeight(-1.0f);
+            views.add(view);
+            engine.addChild(null, width, height, leftMargins[i], topMargins[i], 1, 2, LayoutGravity.NO_GRAVITY, -1.0f, newLine);
+        }
+
+        CommonLogic.fillLines(views, lines, config);
+        CommonLogic.calculateLinesAndChildPosition(lines);
+        engine.fillLines();
+        engine.calculatePositions();
+
+        Assert.assertEquals(lines.size(), engine.getLineCount());
+        for (int line = 0; line < lines.size(); line++) {
+            List<ViewDefinition> lineViews = lines.get(line).getViews();
+            Assert.assertEquals(lineViews.size(), engine.getLineChildCount(line));
+            for (int k = 0; k < lineViews.size(); k++) {
+                Assert.assertEquals(views.indexOf(lineViews.get(k)), engine.getLineChild(line, k));
+            }
+        }
+        LineDefinition lastLine = lines.get(lines.size() - 1);
+        Assert.assertEquals(lastLine.getLineStartThickness() + lastLine.getLineThickness(), engine.getContentThickness());
+
+        CommonLogic.applyGravityToLines(lines, 200, 300, config);
+        engine.applyGravity(200, 300);
+
+        for (LineDefinition line : lines) {
+            for (ViewDefinition view : line.getViews()) {
+                int i = views.indexOf(view);
+                Assert.assertTrue(engine.isPlaced(i));
+                Assert.assertEquals(line.getX() + view.getInlineX() + leftMargins[i], engine.getLeft(i));
+                Assert.assertEquals(line.getY() + view.getInlineY() + topMargins[i], engine.getTop(i));
+                Assert.assertEquals(view.getWidth(), engine.getWidth(i));
+                Assert.assertEquals(view.getHeight(), engine.getHeight(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.apmem.tools.layouts;
+
+import junit.framework.Assert;
+import org.apmem.tools.layouts.logic.CommonLogic;
+import org.apmem.tools.layouts.logic.ConfigDefinition;
+import org.apmem.tools.layouts.logic.LayoutGravity;
+import org.apmem.tools.layouts.logic.LineDefinition;
+import org.apmem.tools.layouts.logic.PositionIndex;
+import org.apmem.tools.layouts.logic.ViewDefinition;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class PositionIndexTests {
+    @Test
+    public void FindViewReturnsViewUnderPoint() {
+        ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(20);
+        ArrayList<ViewDefinition> views = new ArrayList<>();
+        ArrayList<LineDefinition> lines = layout(config, views, 3);
+        PositionIndex index = new PositionIndex();
+        index.build(lines, config);
+
+        // [0][1] on the first line, [2] on the second one
+        Assert.assertEquals(0, index.findView(0, 0));
+        Assert.assertEquals(1, index.findView(15, 5));
+        Assert.assertEquals(2, index.findView(5, 15));
+        Assert.assertEquals(-1, index.findView(15, 15));
+        Assert.assertEquals(-1, index.findView(5, 25));
+    }
+
+    @Test
+    public void FindInsertionIndexSplitsViewsInTheMiddle() {
+        ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(20);
+        ArrayList<ViewDefinition> views = new ArrayList<>();
+        ArrayList<LineDefinition> lines = layout(config, views, 3);
+        PositionIndex index = new PositionIndex();
+        index.build(lines, config);
+
+        Assert.assertEquals(0, index.findInsertionIndex(4, 5));
+        Assert.assertEquals(1, index.findInsertionIndex(5, 5));
+        Assert.assertEquals(2, index.findInsertionIndex(19, 5));
+        Assert.assertEquals(3, index.findInsertionIndex(15, 15));
+        Assert.assertEquals(0, index.findInsertionIndex(0, -10));
+        Assert.assertEquals(3, index.findInsertionIndex(30, 100));
+    }
+
+    @Test
+    public void FindInsertionIndexFollowsRtlOrder() {
+        ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(20);
+        config.setLayoutDirection(CommonLogic.LAYOUT_DIRECTION_RTL);
+        ArrayList<ViewDefinition> views = new ArrayList<>();
+        ArrayList<LineDefinition> lines = layout(config, views, 2);
+        PositionIndex index = new PositionIndex();
+        index.build(lines, config);
+
+        // displayed as [1][0]
+        Assert.assertEquals(1, index.findView(5, 5));
+        Assert.assertEquals(2, index.findInsertionIndex(0, 5));
+        Assert.assertEquals(1, index.findInsertionIndex(10, 5));
+        Assert.assertEquals(0, index.findInsertionIndex(19, 5));
+    }
+
+    @Test
+    public void IndexMatchesLinearScan() {
+        Random random = new Random(11);
+        for (int orientation : new int[]{CommonLogic.HORIZONTAL, CommonLogic.VERTICAL}) {
+            for (int direction : new int[]{CommonLogic.LAYOUT_DIRECTION_LTR, CommonLogic.LAYOUT_DIRECTION_RTL}) {
+                for (int round = 0; round < 50; round++) {
+                    ConfigDefinition config = new ConfigDefinition();
+                    config.setOrientation(orientation);
+                    config.setLayoutDirection(direction);
+                    config.setGravity(random.nextBoolean() ? LayoutGravity.CENTER : LayoutGravity.FILL);
+                    config.setMaxWidth(120);
+                    config.setMaxHeight(120);
+                    ArrayList<ViewDefinition> views = new ArrayList<>();
+                    int count = 1 + random.nextInt(40);
+                    for (int i = 0; i < count; i++) {
+                        ViewDefinition view = new ViewDefinition(config, null);
+                        view.setWidth(5 + random.nextInt(30));
+                        view.setHeight(5 + random.nextInt(30));
+                        view.setMargins(random.nextInt(3), random.nextInt(3), random.nextInt(3), random.nextInt(3));
+                        view.setNewLine(random.nextInt(8) == 0);
+                        views.add(view);
+                    }
+                    ArrayList<LineDefinition> lines = new ArrayList<>();
+                    CommonLogic.fillLines(views, lines, config);
+                    CommonLogic.calculateLinesAndChildPosition(lines);
+                    CommonLogic.applyGravityToLines(lines, 120, 400, config);
+
+                    PositionIndex index = new PositionIndex();
+                    index.build(lines, config);
+                    for (int x = -5; x < 130; x += 3) {
+                        for (int y = -5; y < 410; y += 3) {
+                            Assert.assertEquals(findViewLinearly(lines, views, orientation == CommonLogic.HORIZONTAL, x, y), index.findView(x, y));
+                        }
+                    }
+                    // every view is found again at its own position, and a point on its
+                    // leading edge inserts before it
+                    for (LineDefinition line : lines) {
+                        for (ViewDefinition view : line.getViews()) {
+                            int x = line.getX() + view.getInlineX();
+                            int y = line.getY() + view.getInlineY();
+                            Assert.assertEquals(views.indexOf(view), index.findView(x, y));
+                            if (orientation == CommonLogic.HORIZONTAL && direction == CommonLogic.LAYOUT_DIRECTION_RTL) {
+                                x += view.getLength() + view.getSpacingLength() - 1;
+                            }
+                            Assert.assertEquals(views.indexOf(view), index.findInsertionIndex(x, y));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int findViewLinearly(ArrayList<LineDefinition> lines, ArrayList<ViewDefinition> views, boolean horizontal, int x, int y) {
+        for (LineDefinition line : lines) {
+            for (ViewDefinition view : line.getViews()) {
+                int left = line.getX() + view.getInlineX();
+                int top = line.getY() + view.getInlineY();
+                int length = view.getLength() + view.getSpacingLength();
+                int thickness = view.getThickness() + view.getSpacingThickness();
+                int right = left + (horizontal ? length : thickness);
+                int bottom = top + (horizontal ? thickness : length);
+                if (x >= left && x < right && y >= top && y < bottom) {
+                    return views.indexOf(view);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static ArrayList<LineDefinition> layout(ConfigDefinition config, ArrayList<ViewDefinition> views, int count) {
+        for (int i = 0; i < count; i++) {
+            ViewDefinition view = new ViewDefinition(config, null);
+            view.setWidth(10);
+            view.setHeight(10);
+            views.add(view);
+        }
+        ArrayList<LineDefinition> lines = new ArrayList<>();
+        CommonLogic.fillLines(views, lines, config);
+        CommonLogic.calculateLinesAndChildPosition(lines);
+        CommonLogic.applyGravityToLines(lines, 20, 20, config);
+        return lines;
+    }
+}
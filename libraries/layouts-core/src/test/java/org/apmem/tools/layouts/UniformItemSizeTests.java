@@ -0,0 +1,80 @@
+package org.apmem.tools.layouts;
+
+import junit.framework.Assert;
+
+import org.apmem.tools.layouts.logic.CommonLogic;
+import org.apmem.tools.layouts.logic.ConfigDefinition;
+import org.apmem.tools.layouts.logic.LineDefinition;
+import org.apmem.tools.layouts.logic.UniformItemSize;
+import org.apmem.tools.layouts.logic.ViewDefinition;
+import org.junit.Test;
+
+public class UniformItemSizeTests {
+
+    @Test
+    public void Set_AppliesSizeAndMargins() {
+        final ConfigDefinition config = new ConfigDefinition();
+        final UniformItemSize item = new UniformItemSize(config);
+        Assert.assertFalse(item.isMeasured());
+
+        item.set(10, 20, 1, 2, 3, 4);
+
+        Assert.assertTrue(item.isMeasured());
+        final ViewDefinition view = new ViewDefinition(config, null);
+        view.setNewLine(true);
+        item.apply(view);
+        Assert.assertEquals(10, view.getWidth());
+        Assert.assertEquals(20, view.getHeight());
+        Assert.assertEquals(4, view.getSpacingLength());
+        Assert.assertEquals(6, view.getSpacingThickness());
+        Assert.assertFalse(view.isNewLine());
+    }
+
+    @Test
+    public void ItemsPerLine_SameAsFilledLine() {
+        final ConfigDefinition config = new ConfigDefinition();
+        config.setMaxWidth(100);
+        final UniformItemSize item = new UniformItemSize(config);
+        item.set(20, 15, 1, 2, 1, 3);
+
+        final LineDefinition line = new LineDefinition(config);
+        final ViewDefinition view = new ViewDefinition(config, null);
+        item.apply(view);
+        while (line.canFit(view)) {
+            line.addView(view);
+        }
+
+        Assert.assertEquals(line.getViews().size(), item.getItemsPerLine(config.getMaxLength()));
+        Assert.assertEquals(line.getLineThickness(), item.getLineThickness());
+    }
+
+    @Test
+    public void ItemsPerLine_ItemLongerThanLine_OnePerLine() {
+        final ConfigDefinition config = new ConfigDefinition();
+        final UniformItemSize item = new UniformItemSize(config);
+        item.set(150, 15, 0, 0, 0, 0);
+
+        Assert.assertEquals(1, item.getItemsPerLine(100));
+    }
+
+    @Test
+    public void ItemsPerLine_VerticalOrientation_UsesHeight() {
+        final ConfigDefinition config = new ConfigDefinition();
+        config.setOrientation(CommonLogic.VERTICAL);
+        final UniformItemSize item = new UniformItemSize(config);
+        item.set(20, 30, 1, 0, 1, 0);
+
+        Assert.assertEquals(3, item.getItemsPerLine(100));
+        Assert.assertEquals(22, item.getLineThickness());
+    }
+
+    @Test
+    public void Clear_NotMeasured() {
+        final UniformItemSize item = new UniformItemSize(new ConfigDefinition());
+        item.set(10, 10, 0, 0, 0, 0);
+
+        item.clear();
+
+        Assert.assertFalse(item.isMeasured());
+    }
+}
@@ -19,6 +19,7 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.Gravity;
@@ -29,9 +30,11 @@ import android.view.WindowManager;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import org.apmem.tools.layouts.logic.LineDefinition;
-import org.apmem.tools.layouts.logic.ViewDefinition;
+import org.apmem.tools.layouts.logic.ChipChanges;
+import org.apmem.tools.layouts.logic.ChipStore;
 import org.apmem.tools.listeners.AstroDragListener;
+import org.apmem.tools.listeners.BulkChipListener;
+import org.apmem.tools.listeners.ChipChangesListener;
 import org.apmem.tools.listeners.ChipListener;
 import org.apmem.tools.model.Chip;
 import org.apmem.tools.model.ChipInterface;
@@ -42,12 +45,9 @@ import org.apmem.tools.views.DetailedChipView;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 public class AstroFlowLayout extends FlowLayout {
 
@@ -60,17 +60,49 @@ public class AstroFlowLayout extends FlowLayout {
     // Flag to tell if the current view is collapsed or not. Initialially view is not collapsed
     private boolean mIsCollapsed = false;
 
-    // When this FlowLayout is collapsed we hold data in this set
-    private Set<View> mHiddenViews = new HashSet<>();
+    // When this FlowLayout is collapsed these views are gone, in the order of the children
+    private final List<View> mHiddenViews = new ArrayList<>();
 
-    // Simple Map to keep track of views & chips data associated with them
+    // Shows the count of hidden chips when this FlowLayout is collapsed
+    private View mCountView;
+
+    // Collapsed before it was measured, the views are hidden by the first measure pass
+    private boolean mCollapsePending;
+
+    // Specs of the last measure pass, used to find the first line without another pass
+    private boolean mMeasureSpecsKnown;
+    private int mWidthMeasureSpec;
+    private int mHeightMeasureSpec;
+
+    private static final ChipStore.IdProvider<ChipInterface> CHIP_ID_PROVIDER =
+            new ChipStore.IdProvider<ChipInterface>() {
+                @Override
+                public Object getId(ChipInterface chip) {
+                    return chip.getId();
+                }
+            };
+
+    // Keeps track of views & chips data associated with them, in the order of the chips
     // Helpful in getting final data & also in case of drag & drop
-    private Map<View, ChipInterface> mChipMap = Collections.synchronizedMap(
-            new HashMap<View, ChipInterface>());
+    private final ChipStore<View, ChipInterface> mChipStore = new ChipStore<>(CHIP_ID_PROVIDER);
 
     // ChipListener to track chips life cycle
     private ChipListener mChipListener;
 
+    // Receives the chip changes of a frame at once
+    private ChipChangesListener mChipChangesListener;
+
+    // Views & chips when the pending changes started, null when there are none
+    private List<View> mChangedFromViews;
+    private List<ChipInterface> mChangedFromChips;
+
+    private final Runnable mDispatchChipChanges = new Runnable() {
+        @Override
+        public void run() {
+            dispatchChipChanges();
+        }
+    };
+
     public AstroFlowLayout(Context context) {
         this(context, null);
     }
@@ -107,70 +139,91 @@ public class AstroFlowLayout extends FlowLayout {
         // This is important as user can drop outside the view, so it is important that our view
         // listens to DragEvents
         setOnDragListener(mAstroDragListener);
-    }
-
-    /**
-     * Keysets can experience concurrent modification exceptions so if we want to interate over
-     * keys, we need to synchronize the code or we can just make a copy of the collection into one
-     * that will not change
-     * @param map
-     * @return
-     */
-    private Set<View> safeGetKeySet(@NonNull Map<View, ChipInterface> map) {
-        Set<View> returnSet = new HashSet<>();
-        synchronized (map) {
-            returnSet.addAll(map.keySet());
-        }
-        return returnSet;
+        // Chips are almost always added or removed right before the AutoCompleteTextView, so
+        // only the last lines need to be laid out again
+        setIncrementalLayout(true);
     }
 
     /**
      * this is +n feature. When auto complete view loses its focus we try to collapse the view
      * & add the dummy CountTextView at the end
+     * <p>
+     * Views after the first line stay attached in their order and are only made gone, so
+     * collapsing & expanding takes a single layout of the visible views
      */
     @Override
     public void collapse() {
         Preconditions.checkIfCollapseSupported(mCollapsible);
         // There is nothing to collapse
-        if (getChildCount() == 0) {
+        if (getChildCount() == 0 || mIsCollapsed) {
             return;
         }
 
-        // First create temp list to hold all the views of first row of the flow layout
-        List<View> views = new ArrayList<>();
+        // set collapsed to true
+        mIsCollapsed = true;
 
-        // First all all the views to hidden views
-        for (int i = 0; i < getChildCount() - 1; i++) {
-            mHiddenViews.add(getChildAt(i));
+        // The length of the first line is not known before the first measure pass
+        if (!mMeasureSpecsKnown) {
+            mCollapsePending = true;
+            requestLayout();
+            return;
         }
+        hideViewsAfterFirstLine(mWidthMeasureSpec, mHeightMeasureSpec);
+        requestLayout();
+        invalidate();
+    }
 
-        // Get the views present at first line / row
-        LineDefinition lineDefinition = getLines().get(0);
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        mMeasureSpecsKnown = true;
+        mWidthMeasureSpec = widthMeasureSpec;
+        mHeightMeasureSpec = heightMeasureSpec;
+        if (mCollapsePending) {
+            mCollapsePending = false;
+            hideViewsAfterFirstLine(widthMeasureSpec, heightMeasureSpec);
+        }
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
 
-        // Loop through all the views of first line. Only views of first line will be visible
-        // along with +1 i.e. count view
-        for (ViewDefinition viewDefinition : lineDefinition.getViews()) {
-            views.add(viewDefinition.getView());
-            mHiddenViews.remove(viewDefinition.getView());
+    /**
+     * Makes the views after the first line gone & adds the count view after the ones staying.
+     * The first line is found from the sizes of its views and the count view, so only they are
+     * measured, views after the first line never are.
+     * <p>
+     * No layout is requested, so this can run from {@link #onMeasure(int, int)}: the count view is
+     * added in layout, and the layout requests of the views made gone stop at this layout, as it
+     * is still waiting for its layout while being measured.
+     */
+    private void hideViewsAfterFirstLine(int widthMeasureSpec, int heightMeasureSpec) {
+        List<View> views = new ArrayList<>();
+        for (int i = 0; i < getChildCount(); i++) {
+            View view = getChildAt(i);
+            if (view.getVisibility() != GONE) {
+                views.add(view);
+            }
         }
 
-        // just call remove all views to clear layout, this would remove our
-        // autocomplete view also. Obviously!
-        removeAllViews();
+        // The count can't have more digits than the count of all chips, so the count view
+        // measured with it fits wherever the actual count does
+        TextView countView = getCountView("+" + getChipsCount());
+        int firstLineCount = countFirstLineChildren(views, countView, widthMeasureSpec, heightMeasureSpec);
 
-        // And add the views of first line one by one
-        for (View view : views) {
-            addView(view);
+        int hiddenChips = 0;
+        for (int i = firstLineCount; i < views.size(); i++) {
+            View view = views.get(i);
+            view.setVisibility(GONE);
+            mHiddenViews.add(view);
+            if (mChipStore.contains(view)) {
+                hiddenChips++;
+            }
         }
 
-        // So size of the hidden views is the count
-        // if we have views to hide, show them as count
-        if (mHiddenViews.size() > 0) {
-            addView(getCountView("+" + mHiddenViews.size()));
+        // if we have chips to hide, show them as count
+        if (hiddenChips > 0) {
+            countView.setText("+" + hiddenChips);
+            mCountView = countView;
+            addViewInLayout(mCountView, -1, mCountView.getLayoutParams(), true);
         }
-
-        // set collapsed to true
-        mIsCollapsed = true;
     }
 
     /**
@@ -181,7 +234,7 @@ public class AstroFlowLayout extends FlowLayout {
     public void expand() {
         Preconditions.checkIfCollapseSupported(mCollapsible);
         // If we don't have any hidden views just return
-        if (mHiddenViews.size() < 1) {
+        if (mHiddenViews.size() < 1 && !mCollapsePending) {
             return;
         }
         // Now force the expansion
@@ -193,27 +246,22 @@ public class AstroFlowLayout extends FlowLayout {
      */
     public void forceExpand() {
         Preconditions.checkIfCollapseSupported(mCollapsible);
-        // Remove the last count text view
-        if (getChildCount() > 1) {
-            View view = getChildAt(getChildCount() - 1);
-            if (view instanceof AstroFlowLayout) {
-                removeViewAt(getChildCount() - 1);
-            }
-            if (view instanceof TextView) {
-                removeViewAt(getChildCount() - 1);
-            }
+        mCollapsePending = false;
+        // Remove the count text view
+        if (mCountView != null) {
+            removeView(mCountView);
+            mCountView = null;
         }
 
-        // Iterate over all the hidden views
+        // Show the hidden views again, they never left their positions. Views removed or
+        // dragged away while collapsed are left alone
         for (View view : mHiddenViews) {
-            // And add them one by one
-            addView(view);
+            if (view.getParent() == this) {
+                view.setVisibility(VISIBLE);
+            }
         }
 
-        // Add over beloved Auto complete text view.
-        addAutoCompleteView();
-
-        // clear the added hidden views
+        // clear the hidden views
         mHiddenViews.clear();
 
         // set collapsed to false
@@ -226,8 +274,10 @@ public class AstroFlowLayout extends FlowLayout {
      * @param text : count of views present after 1st line
      * @return
      */
-    private View getCountView(String text) {
+    private TextView getCountView(String text) {
         TextView countView = new TextView(getContext());
+        countView.setLayoutParams(new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT));
         int padding = (int) getResources().getDimension(R.dimen.count_view_padding);
         countView.setPadding(padding, padding, padding, padding);
         countView.setText(text);
@@ -265,19 +315,8 @@ public class AstroFlowLayout extends FlowLayout {
      * @param id : id of the chip is supposed to be removed
      */
     public void removeChipById(Object id) {
-        View viewToDelete = null;
-        Set<View> keys = safeGetKeySet(mChipMap);
-        // Go over all the views, get the associated ChipInterface and
-        // see if IDs match to determine if we should return that view.
-        for (View key : keys) {
-            if (mChipMap.get(key) == null) continue;
-            ChipInterface chip = mChipMap.get(key);
-            if (chip == null) continue;
-            if (chip.getId() == id) {
-                viewToDelete = key;
-                break;
-            }
-        }
+        // ids are compared with equals, the first chip with the id is removed
+        View viewToDelete = mChipStore.findById(id);
         if (viewToDelete != null) {
             removeChildView(viewToDelete);
         }
@@ -290,7 +329,7 @@ public class AstroFlowLayout extends FlowLayout {
         }
         // Find the view at that position
         View view = getChildAt(position);
-        return mChipMap.get(view);
+        return mChipStore.get(view);
     }
 
     /**
@@ -301,13 +340,14 @@ public class AstroFlowLayout extends FlowLayout {
      */
     public void removeChildView(View view) {
         // Get the information of the view from cached map
-        ChipInterface removedChip = mChipMap.get(view);
+        ChipInterface removedChip = mChipStore.get(view);
 
         // Remove the view at that particular position
         removeView(view);
 
         // remove the chip from cache
-        mChipMap.remove(view);
+        onChipsChanging();
+        mChipStore.remove(view);
 
         // invalidate the view
         invalidate();
@@ -336,13 +376,66 @@ public class AstroFlowLayout extends FlowLayout {
     @Override
     public void addChipAt(View view, int position) {
         super.addView(view, position);
+        // the chip was added to the cache by getObjectView, move it to its position
+        ChipInterface chipInterface = mChipStore.get(view);
+        if (chipInterface != null) {
+            onChipsChanging();
+            mChipStore.add(getChipPosition(view), view, chipInterface);
+        }
         if (mChipListener != null) {
-            mChipListener.onChipAdded(mChipMap.get(view));
+            mChipListener.onChipAdded(chipInterface);
         }
         // This will help in showing the cursor for MultiAutoCompleteTextView
         mAutoCompleteTextView.setText(" ");
     }
 
+    /**
+     * Adds chips after all others, in their order. Unlike calling {@link #addChipAt(View, int)}
+     * for every chip, views are attached without requesting a layout each. One layout is
+     * requested and the cursor is reset once, then listeners are told about all chips: a
+     * {@link BulkChipListener} and the {@link ChipChangesListener} with a single call, other
+     * {@link ChipListener}s with {@link ChipListener#onChipAdded(ChipInterface)} for each chip.
+     *
+     * @param chips
+     */
+    @Override
+    public void addChips(List<ChipInterface> chips) {
+        if (chips.isEmpty()) {
+            return;
+        }
+        int index = getAutoCompleteTextViewIndex();
+        if (index < 0) {
+            index = getChildCount();
+        }
+        int chipPosition = 0;
+        for (int i = 0; i < index; i++) {
+            if (mChipStore.contains(getChildAt(i))) {
+                chipPosition++;
+            }
+        }
+        for (ChipInterface chip : chips) {
+            // getObjectView adds the chip after all others in the cache, move it to its position
+            View view = getObjectView(chip, chip.isAutoCompleted());
+            mChipStore.add(chipPosition, view, chip);
+            addViewInLayout(view, index, view.getLayoutParams(), true);
+            index++;
+            chipPosition++;
+        }
+        // Requested first, so the one of MultiAutoCompleteTextView changing its text stops here
+        requestLayout();
+        invalidate();
+        // This will help in showing the cursor for MultiAutoCompleteTextView
+        mAutoCompleteTextView.setText(" ");
+        if (mChipListener instanceof BulkChipListener) {
+            ((BulkChipListener) mChipListener).onChipsAdded(Collections.unmodifiableList(chips));
+        } else if (mChipListener != null) {
+            for (ChipInterface chip : chips) {
+                mChipListener.onChipAdded(chip);
+            }
+        }
+        dispatchChipChanges();
+    }
+
     /**
      * Helper method for setting chip listener
      *
@@ -352,6 +445,59 @@ public class AstroFlowLayout extends FlowLayout {
         mChipListener = listener;
     }
 
+    /**
+     * Sets the listener receiving all chip changes of a frame at once. Changes made before the
+     * listener is set are not reported.
+     *
+     * @param listener
+     */
+    public void setChipChangesListener(ChipChangesListener listener) {
+        mChipChangesListener = listener;
+        if (listener == null) {
+            removeCallbacks(mDispatchChipChanges);
+            mChangedFromViews = null;
+            mChangedFromChips = null;
+        }
+    }
+
+    /**
+     * Called before the chips in cache change. Keeps the chips as they were before the first
+     * change and schedules the changes to be reported with the next frame.
+     */
+    private void onChipsChanging() {
+        if (mChipChangesListener == null || mChangedFromViews != null) {
+            return;
+        }
+        // both lists are snapshots, they do not change with the cache
+        mChangedFromViews = mChipStore.getViews();
+        mChangedFromChips = mChipStore.getChips();
+        ViewCompat.postOnAnimation(this, mDispatchChipChanges);
+    }
+
+    /**
+     * Reports the chip changes since the last report to {@link ChipChangesListener} right away
+     */
+    public void dispatchChipChanges() {
+        if (mChangedFromViews == null) {
+            return;
+        }
+        removeCallbacks(mDispatchChipChanges);
+        ChipChanges<ChipInterface> changes = ChipChanges.compute(mChangedFromViews, mChangedFromChips,
+                mChipStore.getViews(), mChipStore.getChips());
+        mChangedFromViews = null;
+        mChangedFromChips = null;
+        if (mChipChangesListener != null && !changes.isEmpty()) {
+            mChipChangesListener.onChipsChanged(changes);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        // the posted report does not run once detached
+        dispatchChipChanges();
+        super.onDetachedFromWindow();
+    }
+
     /**
      * Similar to {@link #addChipAt(View, int) but instead of taking value from cache,
      * chip's value is passed, helpful in case of drag/drop event to avoid data corruption
@@ -365,7 +511,8 @@ public class AstroFlowLayout extends FlowLayout {
         // attach click listener again. Because this method is called from {@link AstroDragListener}
         // meaning, the view was removed & called again. So we need to attach click listener again
         ((ChipView)view).setOnChipClicked(new ChipClickListener());
-        mChipMap.put(view, chipInterface);
+        onChipsChanging();
+        mChipStore.add(getChipPosition(view), view, chipInterface);
         if (mChipListener != null) {
             mChipListener.onChipAdded(chipInterface);
         }
@@ -375,6 +522,25 @@ public class AstroFlowLayout extends FlowLayout {
         addAddMoreImageButton();
     }
 
+    /**
+     * Child positions also count the views which are not chips, like the auto complete view or
+     * the count view, so the position of a chip in the cache is counted from the chip views
+     * before it
+     *
+     * @param view : chip view attached to this layout
+     * @return position of the chip in chip order
+     */
+    private int getChipPosition(View view) {
+        int index = indexOfChild(view);
+        int position = 0;
+        for (int i = 0; i < index; i++) {
+            if (mChipStore.contains(getChildAt(i))) {
+                position++;
+            }
+        }
+        return position;
+    }
+
     /**
      * This is called by parent class to add the view
      * Creates a ChipView with specific item. Which can be String or {@link Chip}
@@ -442,7 +608,8 @@ public class AstroFlowLayout extends FlowLayout {
         // Don't let chip view occupy full width
         chipView.setMaxWidth(mMaxWidth - MARGIN);
         // Update cache
-        mChipMap.put(chipView, chipInterface);
+        onChipsChanging();
+        mChipStore.put(chipView, chipInterface);
         chipView.setEnabled(true);
         LayoutParams params = (LayoutParams) chipView.getLayoutParams();
         if (params == null) {
@@ -460,7 +627,7 @@ public class AstroFlowLayout extends FlowLayout {
      * @return
      */
     public int getChipsCount() {
-        return mChipMap.size();
+        return mChipStore.size();
     }
 
     /**
@@ -485,7 +652,7 @@ public class AstroFlowLayout extends FlowLayout {
             while (!(v instanceof ChipView)) {
                 v = (View) v.getParent();
             }
-            ChipInterface chip = mChipMap.get(v);
+            ChipInterface chip = mChipStore.get(v);
             if (chip == null) {
                 return;
             }
@@ -595,25 +762,43 @@ public class AstroFlowLayout extends FlowLayout {
      * Called by {@link AstroDragListener} to read Cache value
      * However updation is done only in {@link #addChipAt(View, int)} & {@link #removeChipAt(int)}
      *
-     * @return
+     * @param view
+     * @return chip shown by the view, or null
      */
-    public Map<View, ChipInterface> getChipMap() {
-        return mChipMap;
+    @Nullable public ChipInterface getChip(View view) {
+        return mChipStore.get(view);
     }
 
     /**
-     * Returns the current chips' values.
+     * Returns the current chips' values in their order. The list can not be modified and is
+     * the same until chips are added or removed.
+     * <p>
+     * Before chips were kept in order this returned a new modifiable list on every call, callers
+     * changing the result have to copy it first.
      *
      * @return
      */
     public List<ChipInterface> getObjects() {
-        List<ChipInterface> returnChips = new ArrayList<>();
-        Set<View> keys = safeGetKeySet(mChipMap);
-        for (View key : keys) {
-            if (mChipMap.get(key) == null) continue;
-            returnChips.add(mChipMap.get(key));
+        return mChipStore.getChips();
+    }
+
+    /**
+     * Returns the views & chips in cache, in the order of the chips. The map is a snapshot which
+     * can not be modified, it no longer changes with the chips.
+     *
+     * @return
+     * @deprecated use {@link #getChip(View)} to read the chip of a view or {@link #getObjects()}
+     * for all chips
+     */
+    @Deprecated
+    public Map<View, ChipInterface> getChipMap() {
+        Map<View, ChipInterface> chipMap = new LinkedHashMap<>();
+        List<View> views = mChipStore.getViews();
+        List<ChipInterface> chips = mChipStore.getChips();
+        for (int i = 0; i < views.size(); i++) {
+            chipMap.put(views.get(i), chips.get(i));
         }
-        return returnChips;
+        return Collections.unmodifiableMap(chipMap);
     }
 
     /**
@@ -739,11 +924,7 @@ public class AstroFlowLayout extends FlowLayout {
         }
         SavedState ss = (SavedState) state;
         super.onRestoreInstanceState(ss.getSuperState());
-        List<ChipInterface> list = convertParcelableArrayToObjectArray(ss.baseObjects);
-        for (int i = 0; i < list.size(); i++) {
-            ChipInterface chipInterface = list.get(i);
-            addChipAt(getObjectView(chipInterface, chipInterface.isAutoCompleted()), i);
-        }
+        addChips(convertParcelableArrayToObjectArray(ss.baseObjects));
 
         // If layout is collapsed then try to request the focus
         if (!isCollapsed()) {
@@ -32,9 +32,13 @@ import android.widget.ImageView;
 import android.widget.MultiAutoCompleteTextView;
 import android.widget.TextView;
 
+import org.apmem.tools.layouts.logic.CollapsedLine;
 import org.apmem.tools.layouts.logic.CommonLogic;
 import org.apmem.tools.layouts.logic.ConfigDefinition;
+import org.apmem.tools.layouts.logic.DefinitionPool;
 import org.apmem.tools.layouts.logic.LineDefinition;
+import org.apmem.tools.layouts.logic.PackedLayoutEngine;
+import org.apmem.tools.layouts.logic.PositionIndex;
 import org.apmem.tools.layouts.logic.ViewDefinition;
 import org.apmem.tools.listeners.AstroDragListener;
 import org.apmem.tools.model.ChipInterface;
@@ -44,6 +48,7 @@ import org.apmem.tools.views.CopyPasteOptions;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public abstract class FlowLayout extends ViewGroup {
@@ -53,9 +58,39 @@ public abstract class FlowLayout extends ViewGroup {
     private static final int MIN_WIDTH = 20;
 
     private final ConfigDefinition mConfig;
+    // Recycles line & view definitions between measure passes
+    private final DefinitionPool mPool;
+    // Optional array based engine, null when the definition based one is used
+    private PackedLayoutEngine mPackedEngine;
     private List<LineDefinition> mLines = new ArrayList<>();
     private List<ViewDefinition> mViews = new ArrayList<>();
 
+    // Incremental layout state, see setIncrementalLayout
+    private boolean mIncrementalLayout;
+    private boolean mIncrementalValid;
+    private int mPlacedViewCount;
+    private int mReflowFromView;
+    private int mLastWidthMeasureSpec;
+    private int mLastHeightMeasureSpec;
+    private int mLastMaxWidth;
+    private int mLastMaxHeight;
+    private int mFirstLineToLayout;
+
+    // Measure cache, see setMeasureCacheEnabled & setSkipExactMeasure
+    private boolean mMeasureCacheEnabled = true;
+    private boolean mSkipExactMeasure;
+
+    // Resolved gravity & weight cached in LayoutParams are valid while they carry this generation.
+    // The counter is shared by all layouts, so params moved to another layout are resolved again.
+    private static int sResolveGeneration;
+    private int mResolveGeneration;
+
+    // Position lookups, built from mLines on the first query after a measure pass
+    private final PositionIndex mPositionIndex = new PositionIndex();
+    private boolean mPositionIndexValid;
+    // child index of every view definition in mViews
+    private int[] mViewChildIndex = new int[0];
+
     // TextWatcher to watch of text change events
     private TextWatcher mTextWatcher;
 
@@ -107,7 +142,9 @@ public abstract class FlowLayout extends ViewGroup {
         super(context, attributeSet, defStyle);
         mAstroDragListener = new AstroDragListener();
         mConfig = new ConfigDefinition();
+        mPool = new DefinitionPool(mConfig);
         readStyleParameters(context, attributeSet);
+        invalidateResolvedParams();
     }
 
     private void readStyleParameters(Context context, AttributeSet attributeSet) {
@@ -120,6 +157,10 @@ public abstract class FlowLayout extends ViewGroup {
             mConfig.setWeightDefault(a.getFloat(R.styleable.FlowLayout_weightDefault, 0.0f));
             mConfig.setGravity(a.getInteger(R.styleable.FlowLayout_android_gravity,
                     Gravity.NO_GRAVITY));
+            setPackedLayoutEngine(a.getBoolean(R.styleable.FlowLayout_packedLayoutEngine, false));
+            setIncrementalLayout(a.getBoolean(R.styleable.FlowLayout_incrementalLayout, false));
+            mMeasureCacheEnabled = a.getBoolean(R.styleable.FlowLayout_measureCache, true);
+            mSkipExactMeasure = a.getBoolean(R.styleable.FlowLayout_skipExactMeasure, false);
 
             int layoutDirection;
             if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1) {
@@ -607,6 +648,8 @@ public abstract class FlowLayout extends ViewGroup {
 
     public abstract void addChipAt(View view, int position);
 
+    public abstract void addChips(List<ChipInterface> chips);
+
     public abstract List<ChipInterface> getObjects();
 
     public abstract ChipInterface getChipAt(int position);
@@ -617,10 +660,33 @@ public abstract class FlowLayout extends ViewGroup {
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        mPositionIndexValid = false;
+        if (mPackedEngine != null) {
+            measureWithPackedEngine(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+
+        final int maxWidth = MeasureSpec.getSize(widthMeasureSpec) - this.getPaddingRight() - this.getPaddingLeft();
+        final int maxHeight = MeasureSpec.getSize(heightMeasureSpec) - this.getPaddingTop() - this.getPaddingBottom();
+        // with incremental layout only lines from the first changed child onwards are re-flowed
+        final int firstLine = findFirstLineToReflow(widthMeasureSpec, heightMeasureSpec, maxWidth, maxHeight);
+        final int firstView = firstLine > 0 ? mReflowFromView : 0;
+        mFirstLineToLayout = Math.min(mFirstLineToLayout, firstLine);
+
         final int count = this.getChildCount();
-        mViews.clear();
-        mLines.clear();
-        for (int i = 0; i < count; i++) {
+        int firstChild = 0;
+        if (firstLine > 0) {
+            // the first view of the line may have been removed, continue after the kept ones
+            firstChild = mViewChildIndex[firstView - 1] + 1;
+            mPool.recycleFrom(firstView, firstLine);
+            mViews.subList(firstView, mViews.size()).clear();
+            mLines.subList(firstLine, mLines.size()).clear();
+        } else {
+            mPool.recycleAll();
+            mViews.clear();
+            mLines.clear();
+        }
+        for (int i = firstChild; i < count; i++) {
             final View child = this.getChildAt(i);
             if (child.getVisibility() == GONE) {
                 continue;
@@ -628,30 +694,36 @@ public abstract class FlowLayout extends ViewGroup {
 
             final LayoutParams lp = (LayoutParams) child.getLayoutParams();
 
-            child.measure(
+            measureChildCached(child, lp,
                     getChildMeasureSpec(widthMeasureSpec, this.getPaddingLeft() + this.getPaddingRight(), lp.width),
                     getChildMeasureSpec(heightMeasureSpec, this.getPaddingTop() + this.getPaddingBottom(), lp.height)
             );
 
-            ViewDefinition view = new ViewDefinition(mConfig, child);
-            view.setWidth(child.getMeasuredWidth());
-            view.setHeight(child.getMeasuredHeight());
+            ViewDefinition view = mPool.obtainView(child);
+            view.setWidth(lp.mCachedMeasuredWidth);
+            view.setHeight(lp.mCachedMeasuredHeight);
             view.setNewLine(lp.isNewLine());
             view.setGravity(lp.getGravity());
             view.setWeight(lp.getWeight());
             view.setMargins(lp.leftMargin, lp.topMargin, lp.rightMargin, lp.bottomMargin);
+            resolveParams(lp);
+            view.setResolved(lp.mResolvedGravity, lp.mResolvedWeight);
+            if (mViewChildIndex.length <= mViews.size()) {
+                mViewChildIndex = Arrays.copyOf(mViewChildIndex, Math.max(16, mViews.size() * 2));
+            }
+            mViewChildIndex[mViews.size()] = i;
             mViews.add(view);
         }
 
-        mMaxWidth = MeasureSpec.getSize(widthMeasureSpec) - this.getPaddingRight() - this.getPaddingLeft();
+        mMaxWidth = maxWidth;
         mConfig.setMaxWidth(mMaxWidth);
-        mConfig.setMaxHeight(MeasureSpec.getSize(heightMeasureSpec) - this.getPaddingTop() - this.getPaddingBottom());
+        mConfig.setMaxHeight(maxHeight);
         mConfig.setWidthMode(MeasureSpec.getMode(widthMeasureSpec));
         mConfig.setHeightMode(MeasureSpec.getMode(heightMeasureSpec));
         mConfig.setCheckCanFit(mConfig.getLengthMode() != View.MeasureSpec.UNSPECIFIED);
 
-        CommonLogic.fillLines(mViews, mLines, mConfig);
-        CommonLogic.calculateLinesAndChildPosition(mLines);
+        CommonLogic.fillLines(mViews, firstView, mLines, mConfig, mPool);
+        CommonLogic.calculateLinesAndChildPosition(mLines, firstLine);
 
         int contentLength = 0;
         final int linesCount = mLines.size();
@@ -665,13 +737,152 @@ public abstract class FlowLayout extends ViewGroup {
         int realControlLength = CommonLogic.findSize(mConfig.getLengthMode(), mConfig.getMaxLength(), contentLength);
         int realControlThickness = CommonLogic.findSize(mConfig.getThicknessMode(), mConfig.getMaxThickness(), contentThickness);
 
-        CommonLogic.applyGravityToLines(mLines, realControlLength, realControlThickness, mConfig);
+        if (firstLine > 0 && realControlThickness > contentThickness) {
+            // content got shorter than the control, the excess moves lines we have kept; start over
+            mIncrementalValid = false;
+            onMeasure(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
 
-        for (int i = 0; i < linesCount; i++) {
+        CommonLogic.applyGravityToLines(mLines, firstLine, realControlLength, realControlThickness, mConfig);
+
+        int placedViews = firstView;
+        for (int i = firstLine; i < linesCount; i++) {
             LineDefinition line = mLines.get(i);
             applyPositionsToViews(line);
+            placedViews += line.getViews().size();
         }
+        mPool.releaseUnused();
+
+        mPlacedViewCount = placedViews;
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
+        mLastMaxWidth = maxWidth;
+        mLastMaxHeight = maxHeight;
+        // previous lines can only be reused if neither the control length nor spare thickness
+        // depend on the content, and if new lines are appended after them
+        mIncrementalValid = mIncrementalLayout
+                && mConfig.getLengthMode() == MeasureSpec.EXACTLY
+                && realControlThickness <= contentThickness
+                && !(mConfig.getOrientation() == CommonLogic.VERTICAL
+                        && mConfig.getLayoutDirection() == View.LAYOUT_DIRECTION_RTL);
+
+        setMeasuredContentDimension(contentLength, contentThickness, widthMeasureSpec, heightMeasureSpec);
+    }
+
+    /**
+     * Same as the default measure pass but keeps every child in the parallel arrays of
+     * {@link PackedLayoutEngine} instead of view & line definitions.
+     */
+    private void measureWithPackedEngine(int widthMeasureSpec, int heightMeasureSpec) {
+        final PackedLayoutEngine engine = mPackedEngine;
+        final int count = this.getChildCount();
+        engine.begin(count);
+        for (int i = 0; i < count; i++) {
+            final View child = this.getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+
+            measureChildCached(child, lp,
+                    getChildMeasureSpec(widthMeasureSpec, this.getPaddingLeft() + this.getPaddingRight(), lp.width),
+                    getChildMeasureSpec(heightMeasureSpec, this.getPaddingTop() + this.getPaddingBottom(), lp.height)
+            );
+
+            resolveParams(lp);
+            engine.addResolvedChild(child, lp.mCachedMeasuredWidth, lp.mCachedMeasuredHeight,
+                    lp.leftMargin, lp.topMargin, lp.rightMargin, lp.bottomMargin,
+                    lp.mResolvedGravity, lp.mResolvedWeight, lp.isNewLine());
+        }
+        engine.releaseViews();
+
+        mMaxWidth = MeasureSpec.getSize(widthMeasureSpec) - this.getPaddingRight() - this.getPaddingLeft();
+        mConfig.setMaxWidth(mMaxWidth);
+        mConfig.setMaxHeight(MeasureSpec.getSize(heightMeasureSpec) - this.getPaddingTop() - this.getPaddingBottom());
+        mConfig.setWidthMode(MeasureSpec.getMode(widthMeasureSpec));
+        mConfig.setHeightMode(MeasureSpec.getMode(heightMeasureSpec));
+        mConfig.setCheckCanFit(mConfig.getLengthMode() != View.MeasureSpec.UNSPECIFIED);
+
+        engine.fillLines();
+        engine.calculatePositions();
+
+        int contentLength = engine.getContentLength();
+        int contentThickness = engine.getContentThickness();
+        int realControlLength = CommonLogic.findSize(mConfig.getLengthMode(), mConfig.getMaxLength(), contentLength);
+        int realControlThickness = CommonLogic.findSize(mConfig.getThicknessMode(), mConfig.getMaxThickness(), contentThickness);
+
+        engine.applyGravity(realControlLength, realControlThickness);
+
+        final int childCount = engine.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            if (!engine.isPlaced(i)) {
+                continue;
+            }
+            measureChildExactly((View) engine.getView(i), engine.getWidth(i), engine.getHeight(i));
+        }
+
+        setMeasuredContentDimension(contentLength, contentThickness, widthMeasureSpec, heightMeasureSpec);
+    }
 
+    /**
+     * Finds the first line which has to be re-flowed because a child on it (or after it) was
+     * added, removed, hidden or requested a layout since the last pass.
+     * Also sets {@link #mReflowFromView} to the index of the first view of that line, and brings
+     * {@link #mViewChildIndex} up to date for the views before it.
+     *
+     * @return index of the line, or 0 when everything has to be laid out again
+     */
+    private int findFirstLineToReflow(int widthMeasureSpec, int heightMeasureSpec, int maxWidth, int maxHeight) {
+        if (!mIncrementalValid || mLines.isEmpty()
+                || widthMeasureSpec != mLastWidthMeasureSpec || heightMeasureSpec != mLastHeightMeasureSpec
+                || maxWidth != mLastMaxWidth || maxHeight != mLastMaxHeight) {
+            return 0;
+        }
+
+        // find the first view definition which does not match the children any more
+        final int viewCount = mViews.size();
+        final int count = this.getChildCount();
+        int firstDirtyView = 0;
+        for (int i = 0; i < count; i++) {
+            final View child = this.getChildAt(i);
+            final boolean known = firstDirtyView < viewCount && mViews.get(firstDirtyView).getView() == child;
+            if (child.getVisibility() == GONE) {
+                if (known) {
+                    break;
+                }
+                continue;
+            }
+            if (!known || child.isLayoutRequested()) {
+                break;
+            }
+            // children before it may have been added or removed while hidden
+            mViewChildIndex[firstDirtyView] = i;
+            firstDirtyView++;
+        }
+
+        // walk back from the last line, the changed view is usually on it
+        int lineStart = mPlacedViewCount;
+        for (int line = mLines.size() - 1; line > 0; line--) {
+            lineStart -= mLines.get(line).getViews().size();
+            if (lineStart <= firstDirtyView) {
+                if (lineStart == firstDirtyView) {
+                    // the line's first view changed, the next one may now fit on the previous line
+                    line--;
+                    lineStart -= mLines.get(line).getViews().size();
+                }
+                if (line == 0 || lineStart <= 0) {
+                    return 0;
+                }
+                mReflowFromView = lineStart;
+                return line;
+            }
+        }
+        return 0;
+    }
+
+    private void setMeasuredContentDimension(int contentLength, int contentThickness, int widthMeasureSpec, int heightMeasureSpec) {
         /* need to take padding into account */
         int totalControlWidth = this.getPaddingLeft() + this.getPaddingRight();
         int totalControlHeight = this.getPaddingBottom() + this.getPaddingTop();
@@ -690,24 +901,101 @@ public abstract class FlowLayout extends ViewGroup {
         final int childCount = childViews.size();
         for (int i = 0; i < childCount; i++) {
             final ViewDefinition child = childViews.get(i);
-            final View view = child.getView();
-            view.measure(
-                    MeasureSpec.makeMeasureSpec(child.getWidth(), MeasureSpec.EXACTLY),
-                    MeasureSpec.makeMeasureSpec(child.getHeight(), MeasureSpec.EXACTLY)
-            );
+            measureChildExactly((View) child.getView(), child.getWidth(), child.getHeight());
+        }
+    }
+
+    /**
+     * Resolves the child's gravity and weight against this layout's settings, unless they are
+     * still cached in its params from an earlier pass.
+     */
+    private void resolveParams(LayoutParams lp) {
+        if (lp.mResolveGeneration == mResolveGeneration) {
+            return;
+        }
+        lp.mResolvedGravity = CommonLogic.resolveGravity(lp.getGravity(), mConfig);
+        lp.mResolvedWeight = CommonLogic.resolveWeight(lp.getWeight(), mConfig);
+        lp.mResolveGeneration = mResolveGeneration;
+    }
+
+    /**
+     * Drops the resolved gravity and weight cached in all children's params.
+     */
+    private void invalidateResolvedParams() {
+        mResolveGeneration = ++sResolveGeneration;
+    }
+
+    /**
+     * Measures child with the specs given by this layout, unless it was already measured with
+     * the same specs in a previous pass and has not requested a layout since.
+     * The resulting size is kept in the child's {@link LayoutParams}, as the child's own measured
+     * size gets replaced by {@link #measureChildExactly(View, int, int)}.
+     */
+    private void measureChildCached(View child, LayoutParams lp, int childWidthMeasureSpec, int childHeightMeasureSpec) {
+        if (mMeasureCacheEnabled && lp.mMeasureCached && !child.isLayoutRequested()
+                && lp.mCachedWidthMeasureSpec == childWidthMeasureSpec
+                && lp.mCachedHeightMeasureSpec == childHeightMeasureSpec) {
+            return;
         }
+        child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+        lp.mMeasureCached = true;
+        lp.mCachedWidthMeasureSpec = childWidthMeasureSpec;
+        lp.mCachedHeightMeasureSpec = childHeightMeasureSpec;
+        lp.mCachedMeasuredWidth = child.getMeasuredWidth();
+        lp.mCachedMeasuredHeight = child.getMeasuredHeight();
+        lp.mExactlyMeasured = false;
+    }
+
+    /**
+     * Measures child with its final size, skipped when the last measure call already used
+     * exactly this size or, with {@link #setSkipExactMeasure(boolean)}, when the child already
+     * has this size.
+     */
+    private void measureChildExactly(View view, int width, int height) {
+        final LayoutParams lp = (LayoutParams) view.getLayoutParams();
+        if (mMeasureCacheEnabled && lp.mExactlyMeasured
+                && lp.mExactWidth == width && lp.mExactHeight == height) {
+            return;
+        }
+        if (mSkipExactMeasure && view.getMeasuredWidth() == width && view.getMeasuredHeight() == height) {
+            return;
+        }
+        view.measure(
+                MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY)
+        );
+        lp.mExactlyMeasured = true;
+        lp.mExactWidth = width;
+        lp.mExactHeight = height;
     }
 
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        if (mPackedEngine != null) {
+            final PackedLayoutEngine engine = mPackedEngine;
+            final int childCount = engine.getChildCount();
+            for (int i = 0; i < childCount; i++) {
+                if (!engine.isPlaced(i)) {
+                    continue;
+                }
+                final int left = this.getPaddingLeft() + engine.getLeft(i);
+                final int top = this.getPaddingTop() + engine.getTop(i);
+                ((View) engine.getView(i)).layout(left, top, left + engine.getWidth(i), top + engine.getHeight(i));
+            }
+            return;
+        }
+
+        // lines kept by an incremental measure pass are already at the right place
+        final int firstLine = changed ? 0 : Math.min(mFirstLineToLayout, this.mLines.size());
+        mFirstLineToLayout = Integer.MAX_VALUE;
         final int linesCount = this.mLines.size();
-        for (int i = 0; i < linesCount; i++) {
+        for (int i = firstLine; i < linesCount; i++) {
             final LineDefinition line = this.mLines.get(i);
 
             final int count = line.getViews().size();
             for (int j = 0; j < count; j++) {
                 ViewDefinition child = line.getViews().get(j);
-                View view = child.getView();
+                View view = (View) child.getView();
                 LayoutParams lp = (LayoutParams) view.getLayoutParams();
                 view.layout(
                         this.getPaddingLeft() + line.getX() + child.getInlineX() + lp.leftMargin,
@@ -815,6 +1103,8 @@ public abstract class FlowLayout extends ViewGroup {
 
     public void setOrientation(int orientation) {
         mConfig.setOrientation(orientation);
+        mIncrementalValid = false;
+        invalidateResolvedParams();
         this.requestLayout();
     }
 
@@ -847,6 +1137,8 @@ public abstract class FlowLayout extends ViewGroup {
 
     public void setWeightDefault(float weightDefault) {
         mConfig.setWeightDefault(weightDefault);
+        mIncrementalValid = false;
+        invalidateResolvedParams();
         this.requestLayout();
     }
 
@@ -856,6 +1148,8 @@ public abstract class FlowLayout extends ViewGroup {
 
     public void setGravity(int gravity) {
         mConfig.setGravity(gravity);
+        mIncrementalValid = false;
+        invalidateResolvedParams();
         this.requestLayout();
     }
 
@@ -882,16 +1176,93 @@ public abstract class FlowLayout extends ViewGroup {
         //noinspection ResourceType
         if (mConfig.getLayoutDirection() != layoutDirection) {
             mConfig.setLayoutDirection(layoutDirection);
+            mIncrementalValid = false;
+            invalidateResolvedParams();
             requestLayout();
         }
     }
 
+    public boolean isPackedLayoutEngine() {
+        return mPackedEngine != null;
+    }
+
+    /**
+     * Switches between the default {@link ViewDefinition} based layout logic and
+     * {@link PackedLayoutEngine}, which keeps all children in primitive arrays.
+     * Note that {@link #getLines()} is only filled by the default engine, use
+     * {@link #getLineCount()} and {@link #getLineView(int, int)} with either.
+     *
+     * @param packed
+     */
+    public void setPackedLayoutEngine(boolean packed) {
+        if (packed == (mPackedEngine != null)) {
+            return;
+        }
+        mPackedEngine = packed ? new PackedLayoutEngine(mConfig) : null;
+        mIncrementalValid = false;
+        mLines.clear();
+        mViews.clear();
+        this.requestLayout();
+    }
+
+    public boolean isIncrementalLayout() {
+        return mIncrementalLayout;
+    }
+
+    /**
+     * When enabled, a measure pass re-flows only the lines starting at the first child that was
+     * added, removed or changed since the previous pass and keeps the lines before it. Meant for
+     * layouts that mostly change at the end, like chips added before the AutoCompleteTextView.
+     * Only used while the layout has an exact length and no spare thickness to distribute,
+     * otherwise every pass lays out all children.
+     *
+     * @param incrementalLayout
+     */
+    public void setIncrementalLayout(boolean incrementalLayout) {
+        mIncrementalLayout = incrementalLayout;
+        mIncrementalValid = false;
+        this.requestLayout();
+    }
+
+    public boolean isMeasureCacheEnabled() {
+        return mMeasureCacheEnabled;
+    }
+
+    /**
+     * Enabled by default. Children which have not requested a layout since the last pass are not
+     * measured again if the measure specs they would get did not change, and the final EXACTLY
+     * measure is skipped if it would use the same size as the last one.
+     *
+     * @param enabled
+     */
+    public void setMeasureCacheEnabled(boolean enabled) {
+        mMeasureCacheEnabled = enabled;
+        this.requestLayout();
+    }
+
+    public boolean isSkipExactMeasure() {
+        return mSkipExactMeasure;
+    }
+
+    /**
+     * Skips the final EXACTLY measure of a child when its measured size already equals the size
+     * computed by the layout (i.e. no weight or fill gravity changed it). Off by default, as some
+     * views lay out their content differently when measured EXACTLY.
+     *
+     * @param skipExactMeasure
+     */
+    public void setSkipExactMeasure(boolean skipExactMeasure) {
+        mSkipExactMeasure = skipExactMeasure;
+        this.requestLayout();
+    }
+
     public int getMaxLines() {
         return mConfig.getMaxLines();
     }
 
     public void setMaxLines(int maxLines) {
         mConfig.setMaxLines(maxLines);
+        mIncrementalValid = false;
         this.requestLayout();
     }
 
@@ -914,6 +1285,21 @@ public abstract class FlowLayout extends ViewGroup {
         private int gravity = Gravity.NO_GRAVITY;
         private float weight = -1.0f;
 
+        // measure cache of the child owning these params
+        private boolean mMeasureCached;
+        private int mCachedWidthMeasureSpec;
+        private int mCachedHeightMeasureSpec;
+        private int mCachedMeasuredWidth;
+        private int mCachedMeasuredHeight;
+        private boolean mExactlyMeasured;
+        private int mExactWidth;
+        private int mExactHeight;
+
+        // gravity & weight resolved by the parent, valid while mResolveGeneration matches it
+        private int mResolveGeneration;
+        private int mResolvedGravity;
+        private float mResolvedWeight;
+
         public LayoutParams(Context context, AttributeSet attributeSet) {
             super(context, attributeSet);
             this.readStyleParameters(context, attributeSet);
@@ -944,6 +1330,7 @@ public abstract class FlowLayout extends ViewGroup {
 
         public void setGravity(int gravity) {
             this.gravity = gravity;
+            this.mResolveGeneration = 0;
         }
 
         public float getWeight() {
@@ -952,6 +1339,7 @@ public abstract class FlowLayout extends ViewGroup {
 
         public void setWeight(float weight) {
             this.weight = weight;
+            this.mResolveGeneration = 0;
         }
 
         public boolean isNewLine() {
@@ -963,7 +1351,185 @@ public abstract class FlowLayout extends ViewGroup {
         }
     }
 
+    /**
+     * Lines of the last measure pass of the default engine, empty with
+     * {@link PackedLayoutEngine}. {@link #getLineCount()}, {@link #getLineViewCount(int)} and
+     * {@link #getLineView(int, int)} work with both engines.
+     */
     public List<LineDefinition> getLines() {
         return mLines;
     }
+
+    /**
+     * @return number of lines laid out by the last measure pass
+     */
+    public int getLineCount() {
+        if (mPackedEngine != null) {
+            return mPackedEngine.getLineCount();
+        }
+        return mLines.size();
+    }
+
+    /**
+     * @return number of views on the line
+     */
+    public int getLineViewCount(int line) {
+        if (mPackedEngine != null) {
+            return mPackedEngine.getLineChildCount(line);
+        }
+        return mLines.get(line).getViews().size();
+    }
+
+    /**
+     * @return view at {@code position} on the line, in display order
+     */
+    public View getLineView(int line, int position) {
+        if (mPackedEngine != null) {
+            return (View) mPackedEngine.getView(mPackedEngine.getLineChild(line, position));
+        }
+        return (View) mLines.get(line).getViews().get(position).getView();
+    }
+
+    /**
+     * Counts how many of {@code children} stay on the first line when the others are replaced
+     * by {@code summary}, see {@link CollapsedLine}. Only the children up to the end of the
+     * first line & the summary are measured, with the given specs of this layout and cached
+     * for the next measure pass.
+     *
+     * @param children visible children in their order
+     * @param summary  view with {@link LayoutParams}, attached or not
+     * @return number of children staying visible
+     */
+    protected int countFirstLineChildren(final List<View> children, View summary,
+            final int widthMeasureSpec, final int heightMeasureSpec) {
+        final boolean horizontal = mConfig.getOrientation() == CommonLogic.HORIZONTAL;
+        final int lengthMeasureSpec = horizontal ? widthMeasureSpec : heightMeasureSpec;
+        final int padding = horizontal ? this.getPaddingLeft() + this.getPaddingRight() : this.getPaddingTop() + this.getPaddingBottom();
+        final int maxLength = MeasureSpec.getMode(lengthMeasureSpec) == MeasureSpec.UNSPECIFIED
+                ? Integer.MAX_VALUE : MeasureSpec.getSize(lengthMeasureSpec) - padding;
+        final int summaryLength = measureChildLength(summary, widthMeasureSpec, heightMeasureSpec);
+        return CollapsedLine.countVisible(new CollapsedLine.Children() {
+            @Override
+            public int getCount() {
+                return children.size();
+            }
+
+            @Override
+            public int getLength(int index) {
+                return measureChildLength(children.get(index), widthMeasureSpec, heightMeasureSpec);
+            }
+
+            @Override
+            public boolean isNewLine(int index) {
+                return ((LayoutParams) children.get(index).getLayoutParams()).isNewLine();
+            }
+        }, maxLength, summaryLength);
+    }
+
+    /**
+     * @return length of the child along the lines including its margins, measured as in
+     * {@link #onMeasure(int, int)}
+     */
+    private int measureChildLength(View child, int widthMeasureSpec, int heightMeasureSpec) {
+        final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        measureChildCached(child, lp,
+                getChildMeasureSpec(widthMeasureSpec, this.getPaddingLeft() + this.getPaddingRight(), lp.width),
+                getChildMeasureSpec(heightMeasureSpec, this.getPaddingTop() + this.getPaddingBottom(), lp.height)
+        );
+        if (mConfig.getOrientation() == CommonLogic.HORIZONTAL) {
+            return lp.mCachedMeasuredWidth + lp.leftMargin + lp.rightMargin;
+        }
+        return lp.mCachedMeasuredHeight + lp.topMargin + lp.bottomMargin;
+    }
+
+    /**
+     * Finds the child at the given point, in this layout's coordinates. A child's margins count
+     * as part of it. Looked up in the lines of the last measure pass in O(log n); with the packed
+     * layout engine all children are checked instead.
+     *
+     * @return the child, or null when there is none at this point
+     */
+    public View findChildAt(int x, int y) {
+        if (ensurePositionIndex()) {
+            final int view = mPositionIndex.findView(x - this.getPaddingLeft(), y - this.getPaddingTop());
+            if (view < 0) {
+                return null;
+            }
+            final View child = (View) mViews.get(view).getView();
+            return child.getParent() == this ? child : null;
+        }
+        for (int i = this.getChildCount() - 1; i >= 0; i--) {
+            final View child = this.getChildAt(i);
+            if (child.getVisibility() != GONE && x >= child.getLeft() && x < child.getRight()
+                    && y >= child.getTop() && y < child.getBottom()) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Same as {@link #indexOfChild(View)}, but finds a laid out child by its position in
+     * O(log n) instead of walking all children.
+     *
+     * @return index of the child, or -1 when it is not a child of this layout
+     */
+    public int findChildIndex(View child) {
+        if (child == null || child.getParent() != this) {
+            return -1;
+        }
+        if (child.getVisibility() != GONE && ensurePositionIndex()) {
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            final int view = mPositionIndex.findView(
+                    child.getLeft() - lp.leftMargin - this.getPaddingLeft(),
+                    child.getTop() - lp.topMargin - this.getPaddingTop());
+            if (view >= 0 && mViews.get(view).getView() == child && isChildIndexCurrent(view)) {
+                return mViewChildIndex[view];
+            }
+        }
+        // not laid out yet, or children changed since the last measure pass
+        return indexOfChild(child);
+    }
+
+    /**
+     * Finds where a child dropped at the given point, in this layout's coordinates, should be
+     * added. Points above or below all lines go to the first or last line.
+     *
+     * @return index for {@link #addView(View, int)}
+     */
+    public int findInsertionIndex(int x, int y) {
+        if (ensurePositionIndex()) {
+            final int view = mPositionIndex.findInsertionIndex(x - this.getPaddingLeft(), y - this.getPaddingTop());
+            if (view < mPositionIndex.getViewCount() && isChildIndexCurrent(view)) {
+                return mViewChildIndex[view];
+            }
+            if (view > 0 && view == mPositionIndex.getViewCount() && isChildIndexCurrent(view - 1)) {
+                return mViewChildIndex[view - 1] + 1;
+            }
+        }
+        return this.getChildCount();
+    }
+
+    /**
+     * @return index of {@link #mAutoCompleteTextView}, or -1 when it is not added
+     */
+    public int getAutoCompleteTextViewIndex() {
+        return findChildIndex(mAutoCompleteTextView);
+    }
+
+    private boolean ensurePositionIndex() {
+        if (mPackedEngine != null || mLines.isEmpty()) {
+            return false;
+        }
+        if (!mPositionIndexValid) {
+            mPositionIndex.build(mLines, mConfig);
+            mPositionIndexValid = true;
+        }
+        return true;
+    }
+
+    private boolean isChildIndexCurrent(int view) {
+        final int index = mViewChildIndex[view];
+        return index < this.getChildCount() && this.getChildAt(index) == mViews.get(view).getView();
+    }
 }
@@ -3,6 +3,11 @@ package org.apmem.tools.layouts;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.PointF;
+import android.graphics.Rect;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.v7.widget.LinearSmoothScroller;
 import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
 import android.view.Gravity;
@@ -11,34 +16,140 @@ import android.view.ViewDebug;
 import android.view.ViewGroup;
 import org.apmem.tools.layouts.logic.CommonLogic;
 import org.apmem.tools.layouts.logic.ConfigDefinition;
+import org.apmem.tools.layouts.logic.DefinitionPool;
+import org.apmem.tools.layouts.logic.ItemMeasureCache;
 import org.apmem.tools.layouts.logic.LineDefinition;
+import org.apmem.tools.layouts.logic.LineIndex;
+import org.apmem.tools.layouts.logic.UniformItemSize;
 import org.apmem.tools.layouts.logic.ViewDefinition;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-public class FlowLayoutManager extends RecyclerView.LayoutManager {
+public class FlowLayoutManager extends RecyclerView.LayoutManager implements RecyclerView.SmoothScroller.ScrollVectorProvider {
+    // two ints per line, keeps the saved state well below the binder transaction limit
+    private static final int MAX_SAVED_LINES = 8192;
 
     private final ConfigDefinition config;
+    private final DefinitionPool pool;
     List<LineDefinition> lines = new ArrayList<>();
     List<ViewDefinition> views = new ArrayList<>();
+    private int extraLayoutSpace;
+    private int initialPrefetchItemCount = 2;
+
+    // Item ranges and thicknesses of all lines filled so far, see LineIndex
+    private final LineIndex lineIndex = new LineIndex();
+    // Sizes of measured items, to re-flow lines after adapter changes without binding them again
+    private final ItemMeasureCache measureCache;
+    private int indexedLength;
+    private boolean uniformItemSize;
+    // Size of the first measured item, for all items when they are uniform
+    private final UniformItemSize uniformItem;
+    private final Rect decorInsets = new Rect();
+    // Scroll position along the thickness axis, relative to the start of the first line
+    private int scrollOffset;
+    // Lines which currently have views attached
+    private int firstLine;
+    private int attachedLineCount;
+    // Start of the first attached line in the visible area, kept to restore it when that line
+    // has to be indexed again
+    private int firstLineStart;
+    private int pendingScrollPosition = RecyclerView.NO_POSITION;
+    private SavedState pendingSavedState;
 
     public FlowLayoutManager(ConfigDefinition config) {
         this.config = config;
+        this.pool = new DefinitionPool(config);
+        this.measureCache = new ItemMeasureCache(config);
+        this.uniformItem = new UniformItemSize(config);
     }
 
     public FlowLayoutManager() {
-        this.config = new ConfigDefinition();
+        this(new ConfigDefinition());
+    }
+
+    /**
+     * Sets how far beyond the visible area lines are still laid out, in pixels along the line
+     * stacking direction. Views of lines outside the visible area plus this margin are recycled.
+     */
+    public void setExtraLayoutSpace(int extraLayoutSpace) {
+        if (this.extraLayoutSpace == extraLayoutSpace) {
+            return;
+        }
+        this.extraLayoutSpace = Math.max(0, extraLayoutSpace);
+        this.requestLayout();
+    }
+
+    public int getExtraLayoutSpace() {
+        return extraLayoutSpace;
+    }
+
+    /**
+     * Sets how many items are prefetched when this layout manager is used in a RecyclerView
+     * that is nested in another one, and is about to come into view.
+     */
+    public void setInitialPrefetchItemCount(int itemCount) {
+        this.initialPrefetchItemCount = itemCount;
+    }
+
+    public int getInitialPrefetchItemCount() {
+        return initialPrefetchItemCount;
+    }
+
+    /**
+     * Sets whether all items have the same size. Only the first item is then measured, the
+     * other items are measured exactly to its size and lines are computed from the item count,
+     * so scrolling to a position does not measure the items before it. New line flags of items
+     * are ignored.
+     */
+    public void setUniformItemSize(boolean uniformItemSize) {
+        if (this.uniformItemSize == uniformItemSize) {
+            return;
+        }
+        this.uniformItemSize = uniformItemSize;
+        this.lineIndex.clear();
+        this.measureCache.clear();
+        this.uniformItem.clear();
+        this.requestLayout();
+    }
+
+    public boolean isUniformItemSize() {
+        return uniformItemSize;
+    }
+
+    /**
+     * Sets the orientation of lines: {@link CommonLogic#HORIZONTAL} rows scroll vertically,
+     * {@link CommonLogic#VERTICAL} columns scroll horizontally.
+     */
+    public void setOrientation(int orientation) {
+        if (this.config.getOrientation() == orientation) {
+            return;
+        }
+        this.config.setOrientation(orientation);
+        removeAllViews();
+        this.lineIndex.clear();
+        this.measureCache.clear();
+        this.uniformItem.clear();
+        this.scrollOffset = 0;
+        this.firstLine = 0;
+        this.attachedLineCount = 0;
+        this.firstLineStart = 0;
+        this.requestLayout();
+    }
+
+    public int getOrientation() {
+        return this.config.getOrientation();
     }
 
     @Override
     public boolean checkLayoutParams(RecyclerView.LayoutParams lp) {
-        return super.checkLayoutParams(lp);
+        return lp instanceof LayoutParams;
     }
 
     @Override
     public RecyclerView.LayoutParams generateDefaultLayoutParams() {
-        return null;
+        return new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
     }
 
     @Override
@@ -51,55 +162,787 @@ public class FlowLayoutManager extends RecyclerView.LayoutManager {
         return new LayoutParams(p);
     }
 
+    @Override
+    public void onAdapterChanged(RecyclerView.Adapter oldAdapter, RecyclerView.Adapter newAdapter) {
+        removeAllViews();
+        this.lineIndex.clear();
+        this.measureCache.clear();
+        this.uniformItem.clear();
+        this.scrollOffset = 0;
+        this.firstLine = 0;
+        this.attachedLineCount = 0;
+        this.firstLineStart = 0;
+    }
+
+    // adapter changes only drop the lines from the first affected one, the next layout re-flows
+    // them from the measure cache and binds only items whose size is not known
+
+    @Override
+    public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+        this.lineIndex.invalidateFrom(positionStart);
+        this.measureCache.onItemsAdded(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+        this.lineIndex.invalidateFrom(positionStart);
+        this.measureCache.onItemsRemoved(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
+        this.lineIndex.invalidateFrom(positionStart);
+        this.measureCache.onItemsChanged(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+        this.lineIndex.invalidateFrom(Math.min(from, to));
+        this.measureCache.onItemsMoved(from, to, itemCount);
+    }
+
+    @Override
+    public void onItemsChanged(RecyclerView recyclerView) {
+        this.lineIndex.clear();
+        this.measureCache.clear();
+        this.uniformItem.clear();
+    }
+
+    /**
+     * Scrolls so the line containing the item at {@code position} is at the start of the
+     * visible area, or as close to it as the remaining lines allow. Lines up to the item are
+     * indexed first when they were not filled yet.
+     */
+    @Override
+    public void scrollToPosition(int position) {
+        this.pendingSavedState = null;
+        this.pendingScrollPosition = position;
+        this.requestLayout();
+    }
+
+    @Override
+    public void smoothScrollToPosition(RecyclerView recyclerView, RecyclerView.State state, int position) {
+        final LinearSmoothScroller scroller = new LinearSmoothScroller(recyclerView.getContext());
+        scroller.setTargetPosition(position);
+        startSmoothScroll(scroller);
+    }
+
+    /**
+     * @return direction to scroll in to reach the item at {@code targetPosition}, or null when
+     * nothing is laid out yet
+     */
+    @Override
+    public PointF computeScrollVectorForPosition(int targetPosition) {
+        if (getChildCount() == 0) {
+            return null;
+        }
+        final int direction = targetPosition < getPosition(getChildAt(0)) ? -1 : 1;
+        if (this.config.getOrientation() == CommonLogic.HORIZONTAL) {
+            return new PointF(0, direction);
+        }
+        return new PointF(isThicknessMirrored() ? -direction : direction, 0);
+    }
+
+    @Override
+    public boolean supportsPredictiveItemAnimations() {
+        return true;
+    }
+
     @Override
     public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        if (state.isPreLayout()) {
+            // attached views are still where they were, only add the ones moving in
+            layoutAppearingViews(recycler, state);
+            return;
+        }
+
+        // positions of attached views are already updated for adapter changes
+        int anchorPosition = getChildCount() > 0 ? getPosition(getChildAt(0)) : 0;
         detachAndScrapAttachedViews(recycler);
 
-        final int count = this.getItemCount();
+        final int count = state.getItemCount();
+        if (count == 0) {
+            this.lineIndex.clear();
+            this.scrollOffset = 0;
+            this.firstLine = 0;
+            this.attachedLineCount = 0;
+            this.firstLineStart = 0;
+            this.pendingScrollPosition = RecyclerView.NO_POSITION;
+            this.pendingSavedState = null;
+            return;
+        }
+
+        this.config.setMaxWidth(this.getWidth() - this.getPaddingRight() - this.getPaddingLeft());
+        this.config.setMaxHeight(this.getHeight() - this.getPaddingTop() - this.getPaddingBottom());
+        this.config.setWidthMode(View.MeasureSpec.EXACTLY);
+        this.config.setHeightMode(View.MeasureSpec.EXACTLY);
+        this.config.setCheckCanFit(true);
+
+        if (this.indexedLength != this.config.getMaxLength()) {
+            // items may measure differently with another available length too
+            this.lineIndex.clear();
+            this.measureCache.clear();
+            this.uniformItem.clear();
+            this.indexedLength = this.config.getMaxLength();
+        }
+        if (this.pendingSavedState != null) {
+            restoreLines(this.pendingSavedState, count);
+            anchorPosition = this.pendingSavedState.anchorPosition;
+            this.pendingSavedState = null;
+        }
+        if (this.pendingScrollPosition != RecyclerView.NO_POSITION) {
+            this.firstLine = indexLinesTo(recycler, Math.min(this.pendingScrollPosition, count - 1), count);
+            this.scrollOffset = this.lineIndex.getLineStartOffset(this.firstLine);
+            this.pendingScrollPosition = RecyclerView.NO_POSITION;
+        } else if (this.firstLine >= this.lineIndex.getLineCount()) {
+            // lines up to the first attached one were dropped, keep its first item in place
+            this.firstLine = indexLinesTo(recycler, Math.min(anchorPosition, count - 1), count);
+            this.scrollOffset = Math.max(0, this.lineIndex.getLineStartOffset(this.firstLine) - this.firstLineStart);
+        }
+
+        fillLines(recycler, count);
+
+        final int viewport = this.config.getMaxThickness();
+        final int gap = this.scrollOffset + viewport - getAttachedEndOffset();
+        if (gap > 0 && this.scrollOffset > 0 && !hasLine(this.firstLine + this.attachedLineCount, count)) {
+            if (getAttachedEndOffset() <= viewport) {
+                // all lines fit, lay them out from the top again so excess thickness is spread
+                detachAndScrapAttachedViews(recycler);
+                this.firstLine = 0;
+                this.scrollOffset = 0;
+                fillLines(recycler, count);
+            } else {
+                // items after the visible area were removed, scroll back so the last line ends at the bottom
+                scrollBy(-gap, recycler, state);
+            }
+        }
+        this.firstLineStart = this.lineIndex.getLineStartOffset(this.firstLine) - this.scrollOffset;
+        if (state.willRunPredictiveAnimations()) {
+            layoutDisappearingViews(recycler);
+        }
+        pool.releaseUnused();
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState() {
+        if (this.pendingSavedState != null) {
+            return new SavedState(this.pendingSavedState);
+        }
+        final SavedState state = new SavedState();
+        if (getChildCount() > 0) {
+            // the first line may have been dropped from the index by adapter changes
+            state.anchorPosition = this.firstLine < this.lineIndex.getLineCount()
+                    ? this.lineIndex.getLineStartPosition(this.firstLine)
+                    : getPosition(getChildAt(0));
+            state.anchorOffset = this.firstLineStart;
+            state.itemCount = getItemCount();
+            state.indexedLength = this.indexedLength;
+            if (this.firstLine + this.attachedLineCount <= MAX_SAVED_LINES) {
+                state.lines = this.lineIndex.save(this.firstLine + this.attachedLineCount);
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+        if (state instanceof SavedState && ((SavedState) state).anchorPosition != RecyclerView.NO_POSITION) {
+            this.pendingSavedState = (SavedState) state;
+            requestLayout();
+        }
+    }
+
+    /**
+     * Restores the line index from the saved state when items and available length did not
+     * change, so lines before the anchor do not have to be filled again, and puts the first
+     * line back to where it was.
+     */
+    private void restoreLines(SavedState state, int count) {
+        if (state.lines != null && state.itemCount == count && state.indexedLength == this.config.getMaxLength()) {
+            this.lineIndex.restore(state.lines);
+        } else {
+            this.lineIndex.clear();
+        }
+        // the anchor is found in the restored lines, or indexed again
+        this.firstLine = this.lineIndex.getLineCount();
+        this.firstLineStart = state.anchorOffset;
+        this.pendingScrollPosition = RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * Pre-layout pass for predictive animations: items after the attached ones which move in
+     * to replace removed items are laid out in lines after the attached ones, so they can be
+     * animated from there. Lines before them are not filled again.
+     */
+    private void layoutAppearingViews(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        final int childCount = getChildCount();
+        int removedCount = 0;
+        int lastPosition = -1;
+        int attachedEnd = 0;
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            if (((LayoutParams) child.getLayoutParams()).isItemRemoved()) {
+                removedCount++;
+            }
+            lastPosition = Math.max(lastPosition, getPosition(child));
+            attachedEnd = Math.max(attachedEnd, getChildThicknessEnd(child));
+        }
+        if (removedCount == 0) {
+            return;
+        }
+
+        pool.recycleAll();
         views.clear();
         lines.clear();
-        for (int i = 0; i < count; i++) {
-            View child = recycler.getViewForPosition(i);
+        LineDefinition line = null;
+        int contentThickness = 0;
+        final int endPosition = Math.min(state.getItemCount(), lastPosition + 1 + removedCount);
+        for (int i = lastPosition + 1; i < endPosition; i++) {
+            final View child = recycler.getViewForPosition(i);
+            final ViewDefinition view = measureChild(child);
+            if (line == null || view.isNewLine() || !line.canFit(view)) {
+                if (line != null) {
+                    contentThickness += line.getLineThickness();
+                }
+                line = pool.obtainLine();
+                lines.add(line);
+            }
             addView(child);
-            measureChildWithMargins(child, 0, 0);
+            views.add(view);
+            line.addView(view);
+        }
+        if (line != null) {
+            contentThickness += line.getLineThickness();
+        }
+        layoutLines(attachedEnd, contentThickness);
+        pool.releaseUnused();
+    }
+
+    /**
+     * Post-layout pass for predictive animations: views which are no longer laid out but were
+     * not removed move to the line their item is in now, or past the attached lines when that
+     * line is not indexed, so they can be animated there before being recycled.
+     */
+    private void layoutDisappearingViews(RecyclerView.Recycler recycler) {
+        final List<RecyclerView.ViewHolder> scrapList = recycler.getScrapList();
+        if (scrapList.isEmpty()) {
+            return;
+        }
+        // adding the views takes them out of the scrap list
+        final List<RecyclerView.ViewHolder> disappearing = new ArrayList<>(scrapList);
+        final int size = disappearing.size();
+        for (int i = 0; i < size; i++) {
+            final View child = disappearing.get(i).itemView;
+            if (((LayoutParams) child.getLayoutParams()).isItemRemoved()) {
+                continue;
+            }
+            final int line = this.lineIndex.findLineByPosition(disappearing.get(i).getLayoutPosition());
+            final int lineStart = line >= 0 && line < this.lineIndex.getLineCount()
+                    ? this.lineIndex.getLineStartOffset(line)
+                    : getAttachedEndOffset();
+            addDisappearingView(child);
+            offsetChildThickness(child, lineStart - this.scrollOffset - getChildThicknessStart(child));
+        }
+    }
+
+    /**
+     * @return where the child's margin box starts along the thickness axis, relative to the
+     * start of the visible area
+     */
+    private int getChildThicknessStart(View child) {
+        return getChildThicknessEnd(child) - getChildThickness(child);
+    }
+
+    private int getChildThicknessEnd(View child) {
+        final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        if (this.config.getOrientation() == CommonLogic.HORIZONTAL) {
+            return getDecoratedBottom(child) + lp.bottomMargin - this.getPaddingTop();
+        }
+        if (this.config.getLayoutDirection() == CommonLogic.LAYOUT_DIRECTION_RTL) {
+            // vertical lines are mirrored, see layoutLines
+            return this.config.getMaxThickness() - (getDecoratedLeft(child) - lp.leftMargin - this.getPaddingLeft());
+        }
+        return getDecoratedRight(child) + lp.rightMargin - this.getPaddingLeft();
+    }
+
+    private int getChildThickness(View child) {
+        final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        if (this.config.getOrientation() == CommonLogic.HORIZONTAL) {
+            return getDecoratedMeasuredHeight(child) + lp.topMargin + lp.bottomMargin;
+        }
+        return getDecoratedMeasuredWidth(child) + lp.leftMargin + lp.rightMargin;
+    }
+
+    private void offsetChildThickness(View child, int offset) {
+        int dx = 0;
+        int dy = 0;
+        if (this.config.getOrientation() == CommonLogic.HORIZONTAL) {
+            dy = offset;
+        } else if (this.config.getLayoutDirection() == CommonLogic.LAYOUT_DIRECTION_RTL) {
+            dx = -offset;
+        } else {
+            dx = offset;
+        }
+        layoutDecorated(child, getDecoratedLeft(child) + dx, getDecoratedTop(child) + dy,
+                getDecoratedRight(child) + dx, getDecoratedBottom(child) + dy);
+    }
+
+    /**
+     * Fills and positions the lines intersecting the visible area plus the extra layout space,
+     * starting with the first line that was attached before, which may start above the visible
+     * area because of the extra layout space.
+     */
+    private void fillLines(RecyclerView.Recycler recycler, int count) {
+        final int viewport = this.config.getMaxThickness();
+        final int layoutEnd = this.scrollOffset + viewport + this.extraLayoutSpace;
+        pool.recycleAll();
+        views.clear();
+        lines.clear();
+        int lineNumber = this.firstLine;
+        while (hasLine(lineNumber, count) && this.lineIndex.getLineStartOffset(lineNumber) < layoutEnd) {
+            lines.add(fillLine(recycler, lineNumber, count, getChildCount()));
+            lineNumber++;
+        }
+        this.attachedLineCount = lineNumber - this.firstLine;
+
+        // excess thickness is only spread over lines when all of them are shown, so a short
+        // flow looks as it does in FlowLayout
+        final int contentThickness = getAttachedEndOffset() - this.lineIndex.getLineStartOffset(this.firstLine);
+        final int realControlThickness = this.firstLine == 0 && this.scrollOffset == 0
+                ? CommonLogic.findSize(this.config.getThicknessMode(), viewport, contentThickness)
+                : contentThickness;
+        layoutLines(this.lineIndex.getLineStartOffset(this.firstLine) - this.scrollOffset, realControlThickness);
+
+        final int layoutStart = this.scrollOffset - this.extraLayoutSpace;
+        while (this.lineIndex.getLineStartOffset(this.firstLine) > layoutStart && prependLine(recycler, count)) {
+            // lines before the visible area, for the extra layout space
+        }
+        // the first line may have become thinner since it was attached
+        recycleLines(recycler);
+    }
+
+    // lines are stacked along the scroll axis: rows scroll vertically, columns of the
+    // VERTICAL orientation scroll horizontally
+
+    @Override
+    public boolean canScrollVertically() {
+        return this.config.getOrientation() == CommonLogic.HORIZONTAL;
+    }
+
+    @Override
+    public boolean canScrollHorizontally() {
+        return this.config.getOrientation() == CommonLogic.VERTICAL;
+    }
+
+    @Override
+    public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        return scrollBy(dy, recycler, state);
+    }
+
+    @Override
+    public int scrollHorizontallyBy(int dx, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        if (isThicknessMirrored()) {
+            return -scrollBy(-dx, recycler, state);
+        }
+        return scrollBy(dx, recycler, state);
+    }
+
+    /**
+     * @return whether the thickness axis runs from right to left, for columns in RTL direction
+     */
+    private boolean isThicknessMirrored() {
+        return this.config.getOrientation() == CommonLogic.VERTICAL
+                && this.config.getLayoutDirection() == CommonLogic.LAYOUT_DIRECTION_RTL;
+    }
+
+    // scroll metrics are in pixels; the range beyond the indexed lines is estimated, see
+    // LineIndex.estimateThickness, and gets more accurate as lines are filled
+
+    @Override
+    public int computeVerticalScrollRange(RecyclerView.State state) {
+        return computeScrollRange(state);
+    }
+
+    @Override
+    public int computeVerticalScrollOffset(RecyclerView.State state) {
+        return getChildCount() == 0 ? 0 : this.scrollOffset;
+    }
+
+    @Override
+    public int computeVerticalScrollExtent(RecyclerView.State state) {
+        return computeScrollExtent();
+    }
+
+    @Override
+    public int computeHorizontalScrollRange(RecyclerView.State state) {
+        return computeScrollRange(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollOffset(RecyclerView.State state) {
+        if (getChildCount() == 0) {
+            return 0;
+        }
+        // scroll bars measure from the left, where the last columns are for RTL
+        if (isThicknessMirrored()) {
+            return computeScrollRange(state) - computeScrollExtent() - this.scrollOffset;
+        }
+        return this.scrollOffset;
+    }
+
+    @Override
+    public int computeHorizontalScrollExtent(RecyclerView.State state) {
+        return computeScrollExtent();
+    }
+
+    private int computeScrollRange(RecyclerView.State state) {
+        if (getChildCount() == 0) {
+            return 0;
+        }
+        final int estimatedThickness = this.lineIndex.estimateThickness(state.getItemCount(), this.config.getMaxLines());
+        return Math.max(estimatedThickness, this.scrollOffset + this.config.getMaxThickness());
+    }
+
+    private int computeScrollExtent() {
+        return getChildCount() == 0 ? 0 : this.config.getMaxThickness();
+    }
+
+    /**
+     * Prefetches the next line in the scroll direction. Lines before the attached ones are
+     * always indexed; for a line after the indexed ones the item count of the last indexed
+     * line is the best guess.
+     */
+    @Override
+    public void collectAdjacentPrefetchPositions(int dx, int dy, RecyclerView.State state, LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        final int delta;
+        if (this.config.getOrientation() == CommonLogic.HORIZONTAL) {
+            delta = dy;
+        } else {
+            delta = isThicknessMirrored() ? -dx : dx;
+        }
+        if (getChildCount() == 0 || delta == 0 || this.firstLine + this.attachedLineCount > this.lineIndex.getLineCount()) {
+            return;
+        }
+        final int count = state.getItemCount();
+        final int firstPosition;
+        final int endPosition;
+        final int distance;
+        if (delta > 0) {
+            final int lineNumber = this.firstLine + this.attachedLineCount;
+            if (!hasLine(lineNumber, count)) {
+                return;
+            }
+            firstPosition = this.lineIndex.getLineStartPosition(lineNumber);
+            if (lineNumber < this.lineIndex.getLineCount()) {
+                endPosition = this.lineIndex.getLineStartPosition(lineNumber + 1);
+            } else {
+                endPosition = Math.min(count, firstPosition + Math.max(1, this.lineIndex.getLineItemCount(lineNumber - 1)));
+            }
+            distance = this.lineIndex.getLineStartOffset(lineNumber) - this.scrollOffset - this.config.getMaxThickness();
+        } else {
+            final int lineNumber = this.firstLine - 1;
+            if (lineNumber < 0) {
+                return;
+            }
+            firstPosition = this.lineIndex.getLineStartPosition(lineNumber);
+            endPosition = this.lineIndex.getLineStartPosition(lineNumber + 1);
+            distance = this.scrollOffset - this.lineIndex.getLineStartOffset(lineNumber + 1);
+        }
+        for (int i = firstPosition; i < endPosition; i++) {
+            layoutPrefetchRegistry.addPosition(i, Math.max(0, distance));
+        }
+    }
+
+    /**
+     * Prefetches the first items for a RecyclerView nested in another one, starting at the
+     * pending scroll position or the first attached line, see {@link #setInitialPrefetchItemCount(int)}.
+     */
+    @Override
+    public void collectInitialPrefetchPositions(int adapterItemCount, LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        int firstPosition = 0;
+        if (this.pendingScrollPosition != RecyclerView.NO_POSITION) {
+            firstPosition = this.pendingScrollPosition;
+        } else if (this.firstLine < this.lineIndex.getLineCount()) {
+            firstPosition = this.lineIndex.getLineStartPosition(this.firstLine);
+        }
+        final int endPosition = Math.min(adapterItemCount, firstPosition + this.initialPrefetchItemCount);
+        for (int i = Math.max(0, firstPosition); i < endPosition; i++) {
+            layoutPrefetchRegistry.addPosition(i, 0);
+        }
+    }
+
+    /**
+     * Scrolls along the thickness axis, filling lines that come into the visible area (plus
+     * the extra layout space) and recycling lines that leave it.
+     *
+     * @return distance actually scrolled
+     */
+    private int scrollBy(int delta, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        // attached lines dropped from the index are filled again by the next layout
+        if (getChildCount() == 0 || delta == 0 || this.firstLine + this.attachedLineCount > this.lineIndex.getLineCount()) {
+            return 0;
+        }
+        final int count = state.getItemCount();
+        final int viewport = this.config.getMaxThickness();
+        int target = this.scrollOffset + delta;
+        if (delta > 0) {
+            while (getAttachedEndOffset() < target + viewport + this.extraLayoutSpace && appendLine(recycler, count)) {
+                // fill the new lines at the bottom
+            }
+            if (!hasLine(this.firstLine + this.attachedLineCount, count)) {
+                target = Math.min(target, Math.max(this.scrollOffset, getAttachedEndOffset() - viewport));
+            }
+        } else {
+            while (this.lineIndex.getLineStartOffset(this.firstLine) > target - this.extraLayoutSpace && prependLine(recycler, count)) {
+                // fill the new lines at the top
+            }
+            target = Math.max(target, 0);
+        }
+
+        final int scrolled = target - this.scrollOffset;
+        if (this.config.getOrientation() == CommonLogic.HORIZONTAL) {
+            offsetChildrenVertical(-scrolled);
+        } else {
+            offsetChildrenHorizontal(isThicknessMirrored() ? scrolled : -scrolled);
+        }
+        this.scrollOffset = target;
+        recycleLines(recycler);
+        this.firstLineStart = this.lineIndex.getLineStartOffset(this.firstLine) - this.scrollOffset;
+        pool.releaseUnused();
+        return scrolled;
+    }
+
+    /**
+     * Indexes lines, measuring their items without attaching them, until the item at
+     * {@code position} is indexed.
+     *
+     * @return line containing the item, or the last line when the line limit is reached before
+     */
+    private int indexLinesTo(RecyclerView.Recycler recycler, int position, int count) {
+        while (this.lineIndex.getIndexedItemCount() <= position && hasLine(this.lineIndex.getLineCount(), count)) {
+            pool.recycleAll();
+            fillLine(recycler, this.lineIndex.getLineCount(), count, -1);
+        }
+        final int line = this.lineIndex.findLineByPosition(position);
+        return line >= 0 ? line : Math.max(0, this.lineIndex.getLineCount() - 1);
+    }
+
+    /**
+     * @return whether the line exists, either indexed already or with items left to fill it
+     */
+    private boolean hasLine(int lineNumber, int count) {
+        if (lineNumber < this.lineIndex.getLineCount()) {
+            return true;
+        }
+        return this.lineIndex.getIndexedItemCount() < count
+                && (this.config.getMaxLines() <= 0 || lineNumber < this.config.getMaxLines());
+    }
+
+    private int getAttachedEndOffset() {
+        return this.lineIndex.getLineStartOffset(this.firstLine + this.attachedLineCount);
+    }
 
-            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+    private boolean appendLine(RecyclerView.Recycler recycler, int count) {
+        final int lineNumber = this.firstLine + this.attachedLineCount;
+        if (!hasLine(lineNumber, count)) {
+            return false;
+        }
+        pool.recycleAll();
+        views.clear();
+        lines.clear();
+        final LineDefinition line = fillLine(recycler, lineNumber, count, getChildCount());
+        lines.add(line);
+        layoutLines(this.lineIndex.getLineStartOffset(lineNumber) - this.scrollOffset, line.getLineThickness());
+        this.attachedLineCount++;
+        return true;
+    }
+
+    private boolean prependLine(RecyclerView.Recycler recycler, int count) {
+        final int lineNumber = this.firstLine - 1;
+        if (lineNumber < 0) {
+            return false;
+        }
+        pool.recycleAll();
+        views.clear();
+        lines.clear();
+        final LineDefinition line = fillLine(recycler, lineNumber, count, 0);
+        lines.add(line);
+        layoutLines(this.lineIndex.getLineStartOffset(lineNumber) - this.scrollOffset, line.getLineThickness());
+        this.firstLine--;
+        this.attachedLineCount++;
+        return true;
+    }
+
+    /**
+     * Recycles the views of attached lines outside the visible area plus the extra layout space.
+     */
+    private void recycleLines(RecyclerView.Recycler recycler) {
+        final int layoutStart = this.scrollOffset - this.extraLayoutSpace;
+        final int layoutEnd = this.scrollOffset + this.config.getMaxThickness() + this.extraLayoutSpace;
+        while (this.attachedLineCount > 0
+                && this.lineIndex.getLineStartOffset(this.firstLine + 1) <= layoutStart) {
+            for (int i = this.lineIndex.getLineItemCount(this.firstLine); i > 0; i--) {
+                removeAndRecycleViewAt(0, recycler);
+            }
+            this.firstLine++;
+            this.attachedLineCount--;
+        }
+        while (this.attachedLineCount > 0
+                && this.lineIndex.getLineStartOffset(this.firstLine + this.attachedLineCount - 1) >= layoutEnd) {
+            for (int i = this.lineIndex.getLineItemCount(this.firstLine + this.attachedLineCount - 1); i > 0; i--) {
+                removeAndRecycleViewAt(getChildCount() - 1, recycler);
+            }
+            this.attachedLineCount--;
+        }
+    }
+
+    /**
+     * Measures the views of a line. Lines in the line index keep their item range; for a new
+     * line the item that no longer fits ends it, and goes back to the recycler when it had to
+     * be measured for that. The new line is added to the index.
+     *
+     * @param childIndex where to attach the views, or -1 to only index the line, in which case
+     *                   items in the measure cache are not bound, and no line is returned for
+     *                   uniform items
+     */
+    private LineDefinition fillLine(RecyclerView.Recycler recycler, int lineNumber, int count, int childIndex) {
+        final boolean indexed = lineNumber < this.lineIndex.getLineCount();
+        final int firstPosition = this.lineIndex.getLineStartPosition(lineNumber);
+        final int endPosition = indexed ? this.lineIndex.getLineStartPosition(lineNumber + 1) : count;
+        if (!indexed && childIndex < 0 && isUniformItemSizeKnown()) {
+            final int itemsPerLine = this.uniformItem.getItemsPerLine(this.config.getMaxLength());
+            this.lineIndex.addLine(Math.min(itemsPerLine, count - firstPosition), this.uniformItem.getLineThickness());
+            return null;
+        }
 
-            ViewDefinition view = new ViewDefinition(this.config, child);
-            view.setWidth(child.getMeasuredWidth());
-            view.setHeight(child.getMeasuredHeight());
-            view.setNewLine(lp.isNewLine());
-            view.setGravity(lp.getGravity());
-            view.setWeight(lp.getWeight());
-            view.setMargins(lp.leftMargin, lp.topMargin, lp.rightMargin, lp.bottomMargin);
+        final LineDefinition line = pool.obtainLine();
+        for (int i = firstPosition; i < endPosition; i++) {
+            final boolean uniform = isUniformItemSizeKnown();
+            if (!indexed && uniform && i - firstPosition == this.uniformItem.getItemsPerLine(this.config.getMaxLength())) {
+                break;
+            }
+            final boolean measured = !uniform && this.measureCache.isMeasured(i);
+            if (!indexed && i > firstPosition && measured && this.measureCache.startsNewLine(i, line)) {
+                break;
+            }
+
+            final ViewDefinition view;
+            if (childIndex < 0 && (uniform || measured)) {
+                view = pool.obtainView(null);
+                if (uniform) {
+                    this.uniformItem.apply(view);
+                } else {
+                    this.measureCache.apply(i, view);
+                }
+            } else if (uniform) {
+                final View child = recycler.getViewForPosition(i);
+                view = measureUniformChild(child);
+                addView(child, childIndex++);
+            } else {
+                final View child = recycler.getViewForPosition(i);
+                view = measureChild(child);
+                final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+                if (this.uniformItemSize) {
+                    this.uniformItem.set(view.getWidth(), view.getHeight(),
+                            lp.leftMargin, lp.topMargin, lp.rightMargin, lp.bottomMargin);
+                    view.setNewLine(false);
+                } else {
+                    this.measureCache.put(i, view.getWidth(), view.getHeight(),
+                            lp.leftMargin, lp.topMargin, lp.rightMargin, lp.bottomMargin, lp.isNewLine());
+                }
+
+                if (!indexed && i > firstPosition && !measured && (view.isNewLine() || !line.canFit(view))) {
+                    recycler.recycleView(child);
+                    break;
+                }
+
+                if (childIndex < 0) {
+                    recycler.recycleView(child);
+                } else {
+                    addView(child, childIndex++);
+                }
+            }
             views.add(view);
+            line.addView(view);
         }
+        if (!indexed) {
+            this.lineIndex.addLine(line.getViews().size(), line.getLineThickness());
+        }
+        return line;
+    }
 
-        this.config.setMaxWidth(this.getWidth() - this.getPaddingRight() - this.getPaddingLeft());
-        this.config.setMaxHeight(this.getHeight() - this.getPaddingTop() - this.getPaddingBottom());
-        this.config.setWidthMode(View.MeasureSpec.EXACTLY);
-        this.config.setHeightMode(View.MeasureSpec.EXACTLY);
-        this.config.setCheckCanFit(true);
+    private boolean isUniformItemSizeKnown() {
+        return this.uniformItemSize && this.uniformItem.isMeasured();
+    }
+
+    /**
+     * Measures the child exactly to the size of the first item, instead of letting it measure
+     * itself.
+     */
+    private ViewDefinition measureUniformChild(View child) {
+        final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        calculateItemDecorationsForChild(child, this.decorInsets);
+        child.measure(
+                View.MeasureSpec.makeMeasureSpec(this.uniformItem.getWidth() - this.decorInsets.left - this.decorInsets.right, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(this.uniformItem.getHeight() - this.decorInsets.top - this.decorInsets.bottom, View.MeasureSpec.EXACTLY)
+        );
+
+        ViewDefinition view = pool.obtainView(child);
+        this.uniformItem.apply(view);
+        view.setGravity(lp.getGravity());
+        view.setWeight(lp.getWeight());
+        return view;
+    }
+
+    private ViewDefinition measureChild(View child) {
+        measureChildWithMargins(child, 0, 0);
+
+        final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+
+        ViewDefinition view = pool.obtainView(child);
+        view.setWidth(getDecoratedMeasuredWidth(child));
+        view.setHeight(getDecoratedMeasuredHeight(child));
+        view.setNewLine(lp.isNewLine());
+        view.setGravity(lp.getGravity());
+        view.setWeight(lp.getWeight());
+        view.setMargins(lp.leftMargin, lp.topMargin, lp.rightMargin, lp.bottomMargin);
+        return view;
+    }
+
+    /**
+     * Positions the filled lines one after another, the first one {@code firstLineStart} from
+     * the start of the visible area.
+     */
+    private void layoutLines(int firstLineStart, int realControlThickness) {
+        // same order as CommonLogic.fillLines gives for RTL; the order of vertical lines is
+        // mirrored when they are positioned instead, as only some of them are filled
+        final boolean rtl = this.config.getLayoutDirection() == CommonLogic.LAYOUT_DIRECTION_RTL;
+        final boolean horizontal = this.config.getOrientation() == CommonLogic.HORIZONTAL;
+        final int linesCount = lines.size();
+        if (rtl && horizontal) {
+            for (int i = 0; i < linesCount; i++) {
+                Collections.reverse(lines.get(i).getViews());
+            }
+        }
 
-        CommonLogic.fillLines(views, lines, config);
         CommonLogic.calculateLinesAndChildPosition(lines);
 
         int contentLength = 0;
-        final int linesCount = lines.size();
         for (int i = 0; i < linesCount; i++) {
             LineDefinition l = lines.get(i);
             contentLength = Math.max(contentLength, l.getLineLength());
         }
-
-        LineDefinition currentLine = lines.get(lines.size() - 1);
-        int contentThickness = currentLine.getLineStartThickness() + currentLine.getLineThickness();
         int realControlLength = CommonLogic.findSize(this.config.getLengthMode(), this.config.getMaxLength(), contentLength);
-        int realControlThickness = CommonLogic.findSize(this.config.getThicknessMode(), this.config.getMaxThickness(), contentThickness);
 
         CommonLogic.applyGravityToLines(lines, realControlLength, realControlThickness, config);
 
         for (int i = 0; i < linesCount; i++) {
             LineDefinition line = lines.get(i);
+            int lineStart = firstLineStart + line.getLineStartThickness();
+            if (rtl && !horizontal) {
+                lineStart = this.config.getMaxThickness() - lineStart - line.getLineThickness();
+            }
+            line.setLineStartThickness(lineStart);
             applyPositionsToViews(line);
         }
     }
@@ -109,15 +952,85 @@ public class FlowLayoutManager extends RecyclerView.LayoutManager {
         final int childCount = childViews.size();
         for (int i = 0; i < childCount; i++) {
             final ViewDefinition child = childViews.get(i);
-            final View view = child.getView();
-            measureChildWithMargins(view, child.getWidth(), child.getHeight());
-
-            layoutDecorated(view,
-                    this.getPaddingLeft() + line.getLineStartLength() + child.getInlineStartLength(),
-                    this.getPaddingTop() + line.getLineStartThickness() + child.getInlineStartThickness(),
-                    this.getPaddingLeft() + line.getLineStartLength() + child.getInlineStartLength() + child.getWidth(),
-                    this.getPaddingTop() + line.getLineStartThickness() + child.getInlineStartThickness() + child.getHeight()
-            );
+            final View view = (View) child.getView();
+            final LayoutParams lp = (LayoutParams) view.getLayoutParams();
+            measureChildExactly(view, child.getWidth(), child.getHeight());
+
+            final int left = this.getPaddingLeft() + line.getX() + child.getInlineX() + lp.leftMargin;
+            final int top = this.getPaddingTop() + line.getY() + child.getInlineY() + lp.topMargin;
+            layoutDecorated(view, left, top, left + child.getWidth(), top + child.getHeight());
+        }
+    }
+
+    /**
+     * Re-measures the child when gravity or weight changed its decorated size.
+     */
+    private void measureChildExactly(View view, int width, int height) {
+        final int decoratedWidth = getDecoratedMeasuredWidth(view);
+        final int decoratedHeight = getDecoratedMeasuredHeight(view);
+        if (decoratedWidth == width && decoratedHeight == height) {
+            return;
+        }
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(width - (decoratedWidth - view.getMeasuredWidth()), View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height - (decoratedHeight - view.getMeasuredHeight()), View.MeasureSpec.EXACTLY)
+        );
+    }
+
+    /**
+     * Position and offset of the first attached line, with the line index up to the attached
+     * lines unless it is too large to be saved.
+     */
+    public static class SavedState implements Parcelable {
+        int anchorPosition = RecyclerView.NO_POSITION;
+        int anchorOffset;
+        int itemCount;
+        int indexedLength;
+        int[] lines;
+
+        SavedState() {
+        }
+
+        SavedState(SavedState other) {
+            this.anchorPosition = other.anchorPosition;
+            this.anchorOffset = other.anchorOffset;
+            this.itemCount = other.itemCount;
+            this.indexedLength = other.indexedLength;
+            this.lines = other.lines;
+        }
+
+        protected SavedState(Parcel in) {
+            anchorPosition = in.readInt();
+            anchorOffset = in.readInt();
+            itemCount = in.readInt();
+            indexedLength = in.readInt();
+            lines = in.createIntArray();
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeInt(anchorPosition);
+            dest.writeInt(anchorOffset);
+            dest.writeInt(itemCount);
+            dest.writeInt(indexedLength);
+            dest.writeIntArray(lines);
         }
     }
 
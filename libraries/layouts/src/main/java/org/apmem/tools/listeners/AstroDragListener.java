@@ -66,15 +66,20 @@ public class AstroDragListener implements View.OnDragListener {
                 // As we have set drag listener to {@link AstroFlowLayout} we must consider the case
                 // of dropping a view on AstroFlowLayout
                 AstroFlowLayout targetContainer;
+                // True when the target position is a gap between chips rather than a chip
+                boolean droppedBetweenChips = false;
                 // If user dropped view on AstroFlowLayout
                 if (targetView instanceof AstroFlowLayout) {
                     targetContainer = (AstroFlowLayout) targetView;
                     // Find the position of MultiAutoCompleteTextView in that parent
-                    targetPosition = ViewUtil.getPositionOfAutoCompleteTextView(targetContainer);
-                    // If there are more than 1 views, just drop before MultiAutoCompleteTextView
-                    if (targetPosition > 0) {
-                        targetPosition--;
+                    int autoCompletePosition = ViewUtil.getPositionOfAutoCompleteTextView(targetContainer);
+                    // drop between the chips closest to the drop point, but never after
+                    // MultiAutoCompleteTextView
+                    targetPosition = targetContainer.findInsertionIndex((int) event.getX(), (int) event.getY());
+                    if (autoCompletePosition >= 0 && targetPosition > autoCompletePosition) {
+                        targetPosition = autoCompletePosition;
                     }
+                    droppedBetweenChips = true;
                 } else {
                     // This means, user has dropped on ChipView or MultiAutoCompleteTextView
                     // get the target container
@@ -91,6 +96,11 @@ public class AstroDragListener implements View.OnDragListener {
                 // if it is collapsed, then expand it
                 if (targetContainer.isCollapsed()) {
                     targetContainer.forceExpand();
+                    if (droppedBetweenChips) {
+                        // the drop point was in the collapsed layout, just drop before
+                        // MultiAutoCompleteTextView
+                        targetPosition = ViewUtil.getPositionOfAutoCompleteTextView(targetContainer);
+                    }
                 }
 
                 // now get the position of source view in source container
@@ -98,6 +108,11 @@ public class AstroDragListener implements View.OnDragListener {
                 if (sourcePosition == -1) {
                     return true;
                 }
+                // removing the source view below shifts everything after it by one
+                if (droppedBetweenChips && sourceContainer == targetContainer
+                        && sourcePosition < targetPosition) {
+                    targetPosition--;
+                }
 
                 if (targetView instanceof MultiAutoCompleteTextView) {
                     // now is target view is MultiAutoCompleteTextView, that means user tried to drop
@@ -114,7 +129,7 @@ public class AstroDragListener implements View.OnDragListener {
 
                 // Now we have figured out which view will be dropped at which point.
                 // Now deal with the objects
-                ChipInterface chipInterface = sourceContainer.getChipMap().get(sourceView);
+                ChipInterface chipInterface = sourceContainer.getChip(sourceView);
 
                 // As we had set visibility of source view to GONE, its time to make it visible
                 // just for safety
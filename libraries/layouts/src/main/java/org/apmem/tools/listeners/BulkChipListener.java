@@ -0,0 +1,19 @@
+/**
+ * BulkChipListener.java
+ *
+ * ChipListener which is told about chips added in bulk with a single call.
+ */
+
+package org.apmem.tools.listeners;
+
+import org.apmem.tools.model.ChipInterface;
+
+import java.util.List;
+
+public interface BulkChipListener extends ChipListener {
+    /**
+     * Called once with all chips added in bulk, in their order, instead of
+     * {@link #onChipAdded(ChipInterface)} for each of them
+     */
+    void onChipsAdded(List<ChipInterface> chips);
+}
@@ -0,0 +1,18 @@
+/**
+ * ChipChangesListener.java
+ *
+ * Listener receiving the changes of chips in batches, instead of one call per chip.
+ */
+
+package org.apmem.tools.listeners;
+
+import org.apmem.tools.layouts.logic.ChipChanges;
+import org.apmem.tools.model.ChipInterface;
+
+public interface ChipChangesListener {
+    /**
+     * Called at most once per frame with all chips added, removed & moved since the last call,
+     * and once at the end of adding chips in bulk
+     */
+    void onChipsChanged(ChipChanges<ChipInterface> changes);
+}
@@ -20,7 +20,8 @@ import android.widget.AutoCompleteTextView;
 import android.widget.MultiAutoCompleteTextView;
 
 import org.apmem.tools.layouts.FlowLayout;
-import org.apmem.tools.views.ChipView;
+import org.apmem.tools.model.Chip;
+import org.apmem.tools.model.ChipInterface;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -113,6 +114,10 @@ public class ViewUtil {
         if (parent == null) {
             return -1;
         }
+        if (parent instanceof FlowLayout) {
+            // looked up by position instead of walking all children
+            return ((FlowLayout) parent).findChildIndex(child);
+        }
         boolean found = false;
         for (position = 0; position < parent.getChildCount(); position++) {
             if (parent.getChildAt(position) == child) {
@@ -132,6 +137,9 @@ public class ViewUtil {
      * @return
      */
     public static int getPositionOfAutoCompleteTextView(ViewGroup parent) {
+        if (parent instanceof FlowLayout) {
+            return ((FlowLayout) parent).getAutoCompleteTextViewIndex();
+        }
         int position;
         boolean found = false;
         for (position = 0; position < parent.getChildCount(); position++) {
@@ -147,13 +155,12 @@ public class ViewUtil {
     }
 
     /**
-     * Parses the text and generates chips view
+     * Parses the text and generates a chip for every valid email address
      * @param text
-     * @param parent
      * @return
      */
-    public static List<ChipView> generateChipsFromText(final String text, final FlowLayout parent) {
-        final List<ChipView> chipViews = new ArrayList<>();
+    public static List<ChipInterface> getChipsFromText(final String text) {
+        final List<ChipInterface> chips = new ArrayList<>();
 
         StringTokenizer tokenizer = new StringTokenizer(text, ",");
         while (tokenizer.hasMoreTokens()) {
@@ -161,10 +168,9 @@ public class ViewUtil {
             if (!Utils.isValidEmailAddress(token)) {
                 continue;
             }
-            ChipView chipView = (ChipView) parent.getObjectView(token, false);
-            chipViews.add(chipView);
+            chips.add(new Chip(token, token, false));
         }
-        return chipViews;
+        return chips;
     }
 
     public static String getInvalidEmailIdFromText(final String text) {
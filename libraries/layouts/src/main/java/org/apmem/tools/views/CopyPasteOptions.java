@@ -19,8 +19,6 @@ import android.widget.MultiAutoCompleteTextView;
 import org.apmem.tools.layouts.FlowLayout;
 import org.apmem.tools.util.ViewUtil;
 
-import java.util.List;
-
 public class CopyPasteOptions extends Dialog {
 
     private MultiAutoCompleteTextView mAutoCompleteTextView;
@@ -54,7 +52,7 @@ public class CopyPasteOptions extends Dialog {
         wmlp.gravity = Gravity.TOP | Gravity.START;
         wmlp.x = (int) mAutoCompleteTextView.getLeft() + 20;
         int delta = 0;
-        if (flowLayout.getLines().size() > 1) {
+        if (flowLayout.getLineCount() > 1) {
             delta = mAutoCompleteTextView.getBottom() - mAutoCompleteTextView.getHeight();
         }
         wmlp.y = (int) group.getY() + delta;
@@ -101,12 +99,7 @@ public class CopyPasteOptions extends Dialog {
 
                         // From pasted string check if there are any valid email addresses
                         // If we find any valid email addresses then we will just add them as Chip
-                        List<ChipView> views = ViewUtil.generateChipsFromText(text, mParent);
-                        int index = mParent.getChildCount() - 1;
-                        for (ChipView chipView : views) {
-                            mParent.addChipAt(chipView, index);
-                            index++;
-                        }
+                        mParent.addChips(ViewUtil.getChipsFromText(text));
 
                         // If there are any invalid addresses then we will add them as plain text
                         // give another chance to user to edit them